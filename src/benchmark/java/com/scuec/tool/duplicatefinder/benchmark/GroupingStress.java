@@ -0,0 +1,137 @@
+package com.scuec.tool.duplicatefinder.benchmark;
+
+import com.scuec.tool.duplicatefinder.util.FileEntry;
+import com.scuec.tool.duplicatefinder.util.FileGroups;
+import com.scuec.tool.duplicatefinder.util.FileIndex;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件分组并发压力测试：多个线程同时向少量分组加入文件，校验没有文件丢失且放行数量正确
+ * <pre>
+ * mvn -Pbenchmark compile exec:java -Dbenchmark.main=com.scuec.tool.duplicatefinder.benchmark.GroupingStress -Dexec.args="[线程数] [每线程文件数] [分组数] [轮数]"
+ * </pre>
+ */
+public class GroupingStress {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int groupCount = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        for (int round = 1; round <= rounds; round++) {
+            FileIndex index = new FileIndex();
+            FileGroups groups = new FileGroups(index, true);
+            AtomicLong released = new AtomicLong(0);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            long begin = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            int group = i % groupCount;
+                            FileEntry entry = entry("t" + thread + "-" + i + ".bin", group);
+                            index.add(entry);
+                            released.addAndGet(groups.add(entry, group).length);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            start.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - begin;
+
+            long total = (long) threads * perThread;
+            AtomicLong members = new AtomicLong(0);
+            groups.forEachDuplicate(group -> {
+                for (FileEntry member : group) {
+                    // 还原的文件大小即分组编号
+                    if (member.getSize() != group.get(0).getSize()) {
+                        return;
+                    }
+                }
+                members.addAndGet(group.size());
+            });
+            boolean ok = members.get() == total && released.get() == total && groups.size() == groupCount
+                    && index.size() == total;
+            System.out.printf("round %d: %s files=%d members=%d released=%d groups=%d %.1f Mops/s%n",
+                    round, ok ? "OK  " : "FAIL", total, members.get(), released.get(), groups.size(),
+                    total * 1000.0 / elapsed);
+            if (!ok) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static FileEntry entry(String name, long size) {
+        Path path = Paths.get("/stress", name);
+        return FileEntry.of(path, new StubAttributes(size));
+    }
+
+    private static final class StubAttributes implements BasicFileAttributes {
+        private static final FileTime EPOCH = FileTime.fromMillis(0);
+        private final long size;
+
+        private StubAttributes(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return EPOCH;
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return EPOCH;
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return EPOCH;
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+    }
+}
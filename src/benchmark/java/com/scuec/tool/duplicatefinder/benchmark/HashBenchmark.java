@@ -0,0 +1,77 @@
+package com.scuec.tool.duplicatefinder.benchmark;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import com.scuec.tool.duplicatefinder.hash.ContentHasher;
+import com.scuec.tool.duplicatefinder.hash.ContentHashers;
+import com.scuec.tool.duplicatefinder.util.ChannelIO;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * 各摘要算法吞吐量测试，分别测试内存数据(纯CPU)、文件普通读取和文件内存映射三种场景
+ * <pre>
+ * mvn -Pbenchmark compile exec:java -Dexec.args="[文件大小MB] [轮数]"
+ * </pre>
+ */
+public class HashBenchmark {
+    private static final int MB = 1024 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        byte[] data = new byte[64 * MB];
+        new Random(42).nextBytes(data);
+        File file = File.createTempFile("hash-benchmark", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int written = 0; written < sizeMb; written += data.length / MB) {
+                out.write(data, 0, Math.min(data.length, (sizeMb - written) * MB));
+            }
+        }
+
+        ChannelIO streamIO = new ChannelIO(0);
+        ChannelIO mappedIO = new ChannelIO(1);
+        System.out.printf("%-10s %14s %14s %14s%n", "algorithm", "memory(MB/s)", "file(MB/s)", "mmap(MB/s)");
+        for (HashAlgorithmEnum algorithm : HashAlgorithmEnum.values()) {
+            ContentHasher hasher = ContentHashers.create(algorithm);
+            // 预热
+            memory(hasher, data);
+            streamIO.hash(file.toPath(), hasher);
+            mappedIO.hash(file.toPath(), hasher);
+
+            double memoryBest = 0;
+            double fileBest = 0;
+            double mappedBest = 0;
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                memory(hasher, data);
+                memoryBest = Math.max(memoryBest, throughput(data.length, System.nanoTime() - start));
+
+                start = System.nanoTime();
+                streamIO.hash(file.toPath(), hasher);
+                fileBest = Math.max(fileBest, throughput(file.length(), System.nanoTime() - start));
+
+                start = System.nanoTime();
+                mappedIO.hash(file.toPath(), hasher);
+                mappedBest = Math.max(mappedBest, throughput(file.length(), System.nanoTime() - start));
+            }
+            System.out.printf("%-10s %14.1f %14.1f %14.1f%n", algorithm, memoryBest, fileBest, mappedBest);
+        }
+    }
+
+    private static long memory(ContentHasher hasher, byte[] data) {
+        hasher.reset();
+        for (int offset = 0; offset < data.length; offset += 64 * 1024) {
+            hasher.update(data, offset, 64 * 1024);
+        }
+        return hasher.getValue();
+    }
+
+    private static double throughput(long bytes, long nanos) {
+        return bytes / (double) MB / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,106 @@
+package com.scuec.tool.duplicatefinder.benchmark;
+
+import com.scuec.tool.duplicatefinder.util.FileEntry;
+import com.scuec.tool.duplicatefinder.util.FileGroups;
+import com.scuec.tool.duplicatefinder.util.FileIndex;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 扫描索引内存占用测试：以合成的文件列表分别构建旧的字符串键分组(suffix_length_md5hex → List&lt;File&gt;)
+ * 和紧凑索引(FileIndex + FileGroups)，输出每百万文件的内存占用
+ * <pre>
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark compile exec:java -Dbenchmark.main=com.scuec.tool.duplicatefinder.benchmark.IndexFootprint -Dexec.args="[文件数(百万)] [每目录文件数]"
+ * </pre>
+ */
+public class IndexFootprint {
+    private static final String[] SUFFIXES = {"jpg", "png", "mp4", "pdf", "docx", "txt", "java", "zip"};
+    private static final double MILLION = 1_000_000.0;
+    private static final double MB = 1024.0 * 1024;
+
+    public static void main(String[] args) {
+        double millions = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+        int filesPerDirectory = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int fileCount = (int) (millions * MILLION);
+
+        System.out.printf("files=%d, filesPerDirectory=%d%n", fileCount, filesPerDirectory);
+        System.out.printf("%-22s %12s %12s %16s%n", "structure", "heap(MB)", "offHeap(MB)", "MB/million files");
+
+        long before = usedHeap();
+        Map<String, List<File>> legacy = new ConcurrentHashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < fileCount; i++) {
+            Path path = path(i, filesPerDirectory, random);
+            long size = random.nextInt(1 << 24);
+            String key = suffix(i) + "_" + size + "_" + md5Hex(random);
+            legacy.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(path.toFile());
+        }
+        report("legacy map", usedHeap() - before, 0, fileCount);
+        legacy.clear();
+        legacy = null;
+
+        compact(false, fileCount, filesPerDirectory);
+        compact(true, fileCount, filesPerDirectory);
+    }
+
+    private static void compact(boolean offHeap, int fileCount, int filesPerDirectory) {
+        long before = usedHeap();
+        FileIndex index = new FileIndex(offHeap);
+        FileGroups groups = new FileGroups(index, true);
+        Random random = new Random(42);
+        for (int i = 0; i < fileCount; i++) {
+            Path path = path(i, filesPerDirectory, random);
+            long size = random.nextInt(1 << 24);
+            FileEntry entry = new FileEntry(path, size, 1_600_000_000_000L + i, null);
+            index.add(entry);
+            groups.add(entry, random.nextLong());
+        }
+        long heap = usedHeap() - before;
+        long offHeapBytes = offHeap ? index.footprint() : 0;
+        report(offHeap ? "compact (off-heap)" : "compact (heap)", heap, offHeapBytes, fileCount);
+        System.out.printf("  index=%.1fMB groups=%.1fMB directories=%d%n",
+                index.footprint() / MB, groups.footprint() / MB, index.getDirectoryCount());
+        index.clear();
+        groups.clear();
+    }
+
+    private static Path path(int i, int filesPerDirectory, Random random) {
+        int directory = i / filesPerDirectory;
+        return Paths.get("/data/library-" + directory / 1000, "album-" + directory % 1000,
+                "IMG_" + (100000 + i) + "_" + Integer.toHexString(random.nextInt()) + "." + suffix(i));
+    }
+
+    private static String suffix(int i) {
+        return SUFFIXES[i % SUFFIXES.length];
+    }
+
+    private static String md5Hex(Random random) {
+        return Long.toHexString(random.nextLong() | Long.MIN_VALUE) + Long.toHexString(random.nextLong() | Long.MIN_VALUE);
+    }
+
+    private static void report(String name, long heap, long offHeap, int fileCount) {
+        double total = (heap + offHeap) / MB;
+        System.out.printf("%-22s %12.1f %12.1f %16.1f%n", name, heap / MB, offHeap / MB, total * MILLION / fileCount);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,175 @@
+package com.scuec.tool.duplicatefinder.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.scuec.tool.duplicatefinder.util.AsyncLogWriter;
+import org.apache.commons.lang3.time.DateFormatUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 扫描日志写入测试：多个线程同时记录日志，对比原来的HashMap + fastjson + PrintWriter逐条写入
+ * 和{@link AsyncLogWriter}的吞吐量及每条日志的内存分配
+ * <pre>
+ * mvn -Pbenchmark compile exec:java -Dbenchmark.main=com.scuec.tool.duplicatefinder.benchmark.ScanLogBenchmark -Dexec.args="[线程数] [每线程日志数] [轮数]"
+ * </pre>
+ */
+public class ScanLogBenchmark {
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final String LOG_THREAD_PREFIX = "duplicate-finder-log-";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        System.out.printf("threads=%d, eventsPerThread=%d, rounds=%d%n", threads, events, rounds);
+        System.out.printf("%-10s %6s %12s %14s %14s%n", "writer", "round", "millis", "events/s", "bytes/event");
+        for (int round = 1; round <= rounds; round++) {
+            run("fastjson", round, threads, events, false);
+            run("async", round, threads, events, true);
+        }
+    }
+
+    private static void run(String name, int round, int threads, int events, boolean async) throws Exception {
+        File file = Files.createTempFile("scan-log-benchmark", ".log").toFile();
+        file.deleteOnExit();
+        Sink sink = async ? new AsyncSink(file) : new LegacySink(file);
+        List<Thread> workers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] allocated = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long before = allocatedBytes(Thread.currentThread().getId());
+                String prefix = "/data/album-" + index + "/IMG_";
+                for (int i = 0; i < events; i++) {
+                    String first = prefix + i + ".jpg";
+                    String duplicate = prefix + i + " (1).jpg";
+                    sink.log("scan", "start", first, duplicate, null);
+                    sink.log("move", "start", first, duplicate, "/data/finder/move.dir");
+                    sink.log("move", "end", first, duplicate, "/data/finder/move.dir");
+                    sink.log("scan", "end", first, duplicate, null);
+                }
+                allocated[index] = allocatedBytes(Thread.currentThread().getId()) - before;
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long logThreadBefore = logThreadAllocatedBytes();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        sink.flush();
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        long total = logThreadAllocatedBytes() - logThreadBefore;
+        for (long bytes : allocated) {
+            total += bytes;
+        }
+        sink.close();
+        long count = 4L * threads * events;
+        System.out.printf("%-10s %6d %12d %14.0f %14.1f%n", name, round, millis, count * 1000.0 / Math.max(millis, 1),
+                (double) total / count);
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static long allocatedBytes(long threadId) {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * 异步写线程中的编码分配也计入
+     */
+    private static long logThreadAllocatedBytes() {
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(LOG_THREAD_PREFIX)) {
+                total += Math.max(allocatedBytes(thread.getId()), 0);
+            }
+        }
+        return total;
+    }
+
+    private interface Sink {
+        void log(String type, String label, String first, String duplicate, String other);
+
+        void flush();
+
+        void close();
+    }
+
+    /**
+     * 原DuplicateProcessor.FinderLogger的写法
+     */
+    private static final class LegacySink implements Sink {
+        private final PrintWriter writer;
+
+        private LegacySink(File file) throws IOException {
+            this.writer = new PrintWriter(file);
+        }
+
+        @Override
+        public void log(String type, String label, String first, String duplicate, String other) {
+            Map<String, String> map = new HashMap<>();
+            map.put("time", DateFormatUtils.format(new Date(), DATE_PATTERN));
+            map.put("type", type);
+            map.put("label", label);
+            map.put("first", first);
+            map.put("duplicate", duplicate);
+            map.put("other", other);
+            writer.write(JSON.toJSONString(map) + "\n");
+        }
+
+        @Override
+        public void flush() {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+    }
+
+    private static final class AsyncSink implements Sink {
+        private final AsyncLogWriter writer;
+
+        private AsyncSink(File file) throws IOException {
+            this.writer = new AsyncLogWriter(file);
+        }
+
+        @Override
+        public void log(String type, String label, String first, String duplicate, String other) {
+            writer.log(type, label, first, duplicate, other);
+        }
+
+        @Override
+        public void flush() {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+    }
+}
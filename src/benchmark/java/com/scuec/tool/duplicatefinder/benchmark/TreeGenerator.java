@@ -0,0 +1,200 @@
+package com.scuec.tool.duplicatefinder.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * 合成测试目录：文件大小在[minSize, maxSize]内按对数均匀分布(小文件多、大文件少)，
+ * 按duplicateRatio的比例复制此前生成的文件内容作为重复文件，相同参数和种子生成的目录完全一致。
+ * 目录中记录生成参数，参数相同时直接复用已有目录
+ * <pre>
+ * mvn -Pbenchmark compile exec:java -Dbenchmark.main=com.scuec.tool.duplicatefinder.benchmark.TreeGenerator -Dexec.args="目录 [文件数] [每目录文件数] [最小字节] [最大字节] [重复比例]"
+ * </pre>
+ */
+public class TreeGenerator {
+    private static final String MARKER = ".tree-generator";
+    private static final String[] SUFFIXES = {"jpg", "png", "mp4", "pdf", "docx", "txt", "java", "zip"};
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private int fileCount = 10_000;
+    private int filesPerDirectory = 100;
+    private long minSize = 1024;
+    private long maxSize = 4L * 1024 * 1024;
+    private double duplicateRatio = 0.2;
+    private long seed = 42;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: TreeGenerator 目录 [文件数] [每目录文件数] [最小字节] [最大字节] [重复比例]");
+            return;
+        }
+        TreeGenerator generator = new TreeGenerator();
+        if (args.length > 1) {
+            generator.fileCount(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            generator.filesPerDirectory(Integer.parseInt(args[2]));
+        }
+        if (args.length > 4) {
+            generator.sizeRange(Long.parseLong(args[3]), Long.parseLong(args[4]));
+        }
+        if (args.length > 5) {
+            generator.duplicateRatio(Double.parseDouble(args[5]));
+        }
+        long start = System.currentTimeMillis();
+        Summary summary = generator.generate(Paths.get(args[0]));
+        System.out.printf("%s，耗时 %d ms%n", summary, System.currentTimeMillis() - start);
+    }
+
+    public TreeGenerator fileCount(int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    public TreeGenerator filesPerDirectory(int filesPerDirectory) {
+        this.filesPerDirectory = Math.max(filesPerDirectory, 1);
+        return this;
+    }
+
+    public TreeGenerator sizeRange(long minSize, long maxSize) {
+        this.minSize = Math.max(minSize, 1);
+        this.maxSize = Math.max(maxSize, this.minSize);
+        return this;
+    }
+
+    public TreeGenerator duplicateRatio(double duplicateRatio) {
+        this.duplicateRatio = duplicateRatio;
+        return this;
+    }
+
+    public TreeGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * 生成目录，已存在参数相同的目录时直接返回，参数不同时删除后重新生成
+     */
+    public Summary generate(Path root) throws IOException {
+        Path marker = root.resolve(MARKER);
+        String signature = signature();
+        if (Files.isRegularFile(marker) && signature.equals(new String(Files.readAllBytes(marker), StandardCharsets.UTF_8))) {
+            return summarize();
+        }
+        String[] existing = root.toFile().list();
+        if (null != existing && existing.length > 0) {
+            // 只清理自己生成过的目录，防止误删其他数据
+            if (!Files.isRegularFile(marker)) {
+                throw new IOException("目录非空且不是生成的测试目录：" + root);
+            }
+            delete(root.toFile());
+        }
+        Files.createDirectories(root);
+        int[] sources = sources();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int i = 0; i < fileCount; i++) {
+            int source = sources[i];
+            Path dir = root.resolve("dir-" + i / filesPerDirectory / 100).resolve("sub-" + i / filesPerDirectory % 100);
+            Files.createDirectories(dir);
+            write(dir.resolve("file-" + i + "." + SUFFIXES[source % SUFFIXES.length]), source, buffer);
+        }
+        Files.write(marker, signature.getBytes(StandardCharsets.UTF_8));
+        return summarize();
+    }
+
+    /**
+     * 按生成规则统计，不读取磁盘
+     */
+    public Summary summarize() {
+        int[] sources = sources();
+        long duplicates = 0;
+        long bytes = 0;
+        for (int i = 0; i < fileCount; i++) {
+            if (sources[i] != i) {
+                duplicates++;
+            }
+            bytes += size(sources[i]);
+        }
+        return new Summary(fileCount, duplicates, bytes);
+    }
+
+    /**
+     * 每个文件的内容来源：原始文件为自身序号，重复文件为此前某个文件的内容来源。
+     * 内容由来源序号和种子决定，不需要保留在内存中
+     */
+    private int[] sources() {
+        Random random = new Random(seed);
+        int[] sources = new int[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            sources[i] = i > 0 && random.nextDouble() < duplicateRatio ? sources[random.nextInt(i)] : i;
+        }
+        return sources;
+    }
+
+    private long size(int source) {
+        double ratio = new Random(seed * 31 + source).nextDouble();
+        return Math.round(Math.exp(Math.log(minSize) + ratio * (Math.log(maxSize) - Math.log(minSize))));
+    }
+
+    private void write(Path file, int source, byte[] buffer) throws IOException {
+        Random content = new Random(seed * 17 + source);
+        long remaining = size(source);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            while (remaining > 0) {
+                content.nextBytes(buffer);
+                int length = (int) Math.min(buffer.length, remaining);
+                out.write(buffer, 0, length);
+                remaining -= length;
+            }
+        }
+    }
+
+    private String signature() {
+        return fileCount + "," + filesPerDirectory + "," + minSize + "," + maxSize + "," + duplicateRatio + "," + seed;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    public static class Summary {
+        private final long fileCount;
+        private final long duplicateCount;
+        private final long totalBytes;
+
+        Summary(long fileCount, long duplicateCount, long totalBytes) {
+            this.fileCount = fileCount;
+            this.duplicateCount = duplicateCount;
+            this.totalBytes = totalBytes;
+        }
+
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        public long getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("文件 %d 个，重复文件 %d 个，共 %.1f MB", fileCount, duplicateCount, totalBytes / 1024.0 / 1024);
+        }
+    }
+}
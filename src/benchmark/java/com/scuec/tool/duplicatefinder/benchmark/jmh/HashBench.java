@@ -0,0 +1,102 @@
+package com.scuec.tool.duplicatefinder.benchmark.jmh;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import com.scuec.tool.duplicatefinder.hash.ContentHasher;
+import com.scuec.tool.duplicatefinder.hash.ContentHashers;
+import com.scuec.tool.duplicatefinder.util.ChannelIO;
+import com.scuec.tool.duplicatefinder.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各摘要算法：内存数据(纯CPU)、普通读取、内存映射读取，以及原来的Utils.getMD5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HashBench {
+    private static final int CHUNK = 64 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"65536", "16777216"})
+        public int fileSize;
+
+        private byte[] bytes;
+        private File file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            bytes = new byte[fileSize];
+            new Random(42).nextBytes(bytes);
+            file = File.createTempFile("hash-bench", ".bin");
+            Files.write(file.toPath(), bytes);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Algorithm {
+        @Param
+        public HashAlgorithmEnum algorithm;
+
+        private ContentHasher hasher;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            hasher = ContentHashers.create(algorithm);
+        }
+    }
+
+    private final ChannelIO streamIO = new ChannelIO(0);
+    private final ChannelIO mappedIO = new ChannelIO(1);
+
+    @Benchmark
+    public long memory(Data data, Algorithm algorithm) {
+        ContentHasher hasher = algorithm.hasher;
+        hasher.reset();
+        for (int offset = 0; offset < data.bytes.length; offset += CHUNK) {
+            hasher.update(data.bytes, offset, Math.min(CHUNK, data.bytes.length - offset));
+        }
+        return hasher.getValue();
+    }
+
+    @Benchmark
+    public long file(Data data, Algorithm algorithm) throws IOException {
+        return streamIO.hash(data.file.toPath(), algorithm.hasher);
+    }
+
+    @Benchmark
+    public long mapped(Data data, Algorithm algorithm) throws IOException {
+        return mappedIO.hash(data.file.toPath(), algorithm.hasher);
+    }
+
+    @Benchmark
+    public String legacyMd5(Data data) {
+        return Utils.getMD5(data.file);
+    }
+}
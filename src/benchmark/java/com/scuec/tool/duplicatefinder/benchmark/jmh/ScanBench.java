@@ -0,0 +1,69 @@
+package com.scuec.tool.duplicatefinder.benchmark.jmh;
+
+import com.scuec.tool.duplicatefinder.config.Config;
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import com.scuec.tool.duplicatefinder.util.DuplicateFinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 完整扫描：遍历、分组、摘要及内容比对全流程，不使用摘要缓存。
+ * 发现的重复文件数与生成规则不一致时抛出异常，防止在错误的结果上比较耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBench {
+    @Param({"XXHASH64", "MD5"})
+    public HashAlgorithmEnum hashAlgorithm;
+    @Param({"4"})
+    public int readersPerDevice;
+
+    @Benchmark
+    public long scan(TreeState tree) throws InterruptedException {
+        Config config = new Config();
+        config.setHashCacheEnabled(false);
+        config.setHashAlgorithm(hashAlgorithm);
+        config.setReadersPerDevice(readersPerDevice);
+        LongAdder duplicates = new LongAdder();
+        try (DuplicateFinder finder = DuplicateFinder.create(new DuplicateFinder.ScanListener() {
+            @Override
+            public void duplicate(String first, String duplicate) {
+                duplicates.increment();
+            }
+
+            @Override
+            public void process(long count) {
+            }
+
+            @Override
+            public void finish(long count) {
+            }
+
+            @Override
+            public void totalCount(long count) {
+            }
+        }).config(config)) {
+            finder.syncScan(Collections.singletonList(tree.getRoot()), Collections.emptyList());
+        }
+        if (duplicates.sum() != tree.getSummary().getDuplicateCount()) {
+            throw new IllegalStateException("重复文件数不一致：" + duplicates.sum() + " != " + tree.getSummary().getDuplicateCount());
+        }
+        return duplicates.sum();
+    }
+}
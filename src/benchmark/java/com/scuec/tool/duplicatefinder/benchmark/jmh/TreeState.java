@@ -0,0 +1,49 @@
+package com.scuec.tool.duplicatefinder.benchmark.jmh;
+
+import com.scuec.tool.duplicatefinder.benchmark.TreeGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 遍历及完整扫描共用的合成目录，按参数生成在系统临时目录下，参数相同的目录在多次运行之间复用。
+ * 生成后文件位于页缓存中，测得的是热缓存下的耗时
+ */
+@State(Scope.Benchmark)
+public class TreeState {
+    @Param({"5000"})
+    public int fileCount;
+    @Param({"100"})
+    public int filesPerDirectory;
+    @Param({"1024"})
+    public long minSize;
+    @Param({"1048576"})
+    public long maxSize;
+    @Param({"0.2"})
+    public double duplicateRatio;
+
+    private Path root;
+    private TreeGenerator.Summary summary;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        root = Paths.get(System.getProperty("java.io.tmpdir"), "duplicate-finder-jmh",
+                String.format("%d-%d-%d-%d-%s", fileCount, filesPerDirectory, minSize, maxSize, duplicateRatio));
+        summary = new TreeGenerator().fileCount(fileCount).filesPerDirectory(filesPerDirectory)
+                .sizeRange(minSize, maxSize).duplicateRatio(duplicateRatio).generate(root);
+    }
+
+    public String getRoot() {
+        return root.toString();
+    }
+
+    public TreeGenerator.Summary getSummary() {
+        return summary;
+    }
+}
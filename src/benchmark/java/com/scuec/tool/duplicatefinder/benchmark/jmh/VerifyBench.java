@@ -0,0 +1,67 @@
+package com.scuec.tool.duplicatefinder.benchmark.jmh;
+
+import com.scuec.tool.duplicatefinder.util.ChannelIO;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容比对：两个内容相同的文件(需完整读取)，ChannelIO与原来的FileUtils.contentEquals对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VerifyBench {
+    @Param({"65536", "16777216"})
+    public int fileSize;
+
+    private final ChannelIO channelIO = new ChannelIO(0);
+    private File first;
+    private File second;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] bytes = new byte[fileSize];
+        new Random(42).nextBytes(bytes);
+        first = File.createTempFile("verify-bench", ".bin");
+        second = File.createTempFile("verify-bench", ".bin");
+        Files.write(first.toPath(), bytes);
+        Files.write(second.toPath(), bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        first.delete();
+        second.delete();
+    }
+
+    @Benchmark
+    public boolean channelIO() throws IOException {
+        return channelIO.contentEquals(first.toPath(), second.toPath());
+    }
+
+    @Benchmark
+    public boolean commonsIO() throws IOException {
+        return FileUtils.contentEquals(first, second);
+    }
+}
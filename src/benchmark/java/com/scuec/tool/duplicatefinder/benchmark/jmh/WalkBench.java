@@ -0,0 +1,60 @@
+package com.scuec.tool.duplicatefinder.benchmark.jmh;
+
+import com.scuec.tool.duplicatefinder.enums.WalkModeEnum;
+import com.scuec.tool.duplicatefinder.util.DirectoryWalker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 目录遍历：DirectoryWalker各线程模式与单线程Files.walk对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalkBench {
+
+    @State(Scope.Benchmark)
+    public static class Walker {
+        @Param
+        public WalkModeEnum walkMode;
+        @Param({"0"})
+        public int parallelism;
+    }
+
+    @Benchmark
+    public long walker(TreeState tree, Walker options) {
+        DirectoryWalker walker = new DirectoryWalker(options.walkMode, options.parallelism, 10000, false);
+        LongAdder count = new LongAdder();
+        try {
+            walker.walk(Collections.singletonList(tree.getRoot()), entry -> count.increment(), () -> false);
+        } finally {
+            walker.shutdown();
+        }
+        return count.sum();
+    }
+
+    @Benchmark
+    public long filesWalk(TreeState tree) throws IOException {
+        try (Stream<java.nio.file.Path> paths = Files.walk(Paths.get(tree.getRoot()))) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+}
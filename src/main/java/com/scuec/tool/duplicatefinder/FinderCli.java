@@ -0,0 +1,402 @@
+package com.scuec.tool.duplicatefinder;
+
+import com.alibaba.fastjson.JSON;
+import com.scuec.tool.duplicatefinder.config.Config;
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
+import com.scuec.tool.duplicatefinder.enums.ScanStageEnum;
+import com.scuec.tool.duplicatefinder.enums.WalkModeEnum;
+import com.scuec.tool.duplicatefinder.util.DuplicateFinder;
+import com.scuec.tool.duplicatefinder.util.DuplicateProcessor;
+import com.scuec.tool.duplicatefinder.util.ScanHandle;
+import com.scuec.tool.duplicatefinder.util.ScanResult;
+import com.scuec.tool.duplicatefinder.util.Utils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 命令行入口，用于没有图形界面的服务器及定时任务。
+ * <pre>
+ * java -jar duplicate-finder.jar [scan] [选项] 目录...
+ * java -cp duplicate-finder.jar com.scuec.tool.duplicatefinder.FinderCli [选项] 目录...
+ * </pre>
+ * 每个重复文件输出一行"第一个文件\t重复文件"，进度及各阶段统计输出到标准错误。
+ * 退出码：0 正常结束，1 参数错误或扫描异常，130 扫描被中断。
+ */
+public class FinderCli {
+    private static final String SCAN_COMMAND = "scan";
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_CANCELLED = 130;
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "用法: java -jar duplicate-finder.jar [scan] [选项] 目录...",
+            "      java -jar duplicate-finder.jar --apply-plan <文件> [-l <目录>]",
+            "",
+            "  -s, --suffix <后缀,...>          只扫描指定后缀的文件，如 jpg,png",
+            "  -a, --action <动作>              重复文件的处理方式：SCAN 只输出(默认)，MOVE 移动，REMOVE 删除，",
+            "                                   LINK 替换为硬链接，REFLINK 替换为写时复制副本(仅Linux)",
+            "  -l, --log-root <目录>            处理日志及移动目录所在的根目录，默认用户目录",
+            "  -o, --output <文件>              结果输出到文件，默认标准输出",
+            "  -c, --config <文件>              基础配置(setting.json 格式)，命令行选项覆盖其中的值",
+            "      --hash <算法>                " + Arrays.toString(HashAlgorithmEnum.values()),
+            "      --hash-threads <n>           不按设备调度时摘要阶段的线程数",
+            "      --verify-threads <n>         内容比对阶段的线程数",
+            "      --readers-per-device <n>     每个固态硬盘或类型未知设备的读取线程数，小于等于0时不按设备调度",
+            "      --readers-per-hdd <n>        每个机械硬盘的读取线程数，默认1",
+            "      --walk-parallelism <n>       目录遍历并行度",
+            "      --walk-mode <PLATFORM|VIRTUAL>",
+            "      --spill-threshold <n>        大于0时使用外部排序分组，内存中最多保留的记录数",
+            "      --temp-dir <目录>            外部排序段文件所在目录",
+            "      --no-cache                   不使用摘要缓存",
+            "      --action-threads <n>         移动、删除重复文件的线程数",
+            "      --dry-run                    只生成处理计划文件，不改动重复文件",
+            "      --permanent-delete           REMOVE 在不支持回收站时直接永久删除，默认不删除并记为失败",
+            "      --apply-plan <文件>          执行试运行生成的处理计划，不扫描",
+            "      --metrics                    扫描结束后输出吞吐量、读取字节数、缓存命中率及各阶段耗时分布",
+            "  -q, --quiet                      不输出进度及阶段统计",
+            "  -h, --help                       显示帮助",
+            "",
+            "示例(crontab): 0 2 * * * java -jar duplicate-finder.jar -o /var/log/dup.tsv /data /backup");
+
+    private final PrintStream err;
+    private final List<String> dirs = new ArrayList<>();
+    private final List<String> suffixes = new ArrayList<>();
+    private Config config;
+    private ProcessTypeEnum action = ProcessTypeEnum.SCAN;
+    private String logRoot = Utils.getHomeDirectory();
+    private String output;
+    private String plan;
+    private boolean quiet;
+    private boolean metrics;
+
+    private FinderCli(PrintStream err) {
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * 解析参数并同步执行扫描
+     *
+     * @return 退出码
+     */
+    public static int run(String[] args) {
+        FinderCli cli = new FinderCli(System.err);
+        try {
+            if (!cli.parse(args)) {
+                cli.err.println(USAGE);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException e) {
+            cli.err.println("参数错误：" + e.getMessage());
+            cli.err.println(USAGE);
+            return EXIT_ERROR;
+        }
+        return cli.execute();
+    }
+
+    /**
+     * @return 是否需要执行扫描，显示帮助时返回false
+     */
+    private boolean parse(String[] args) {
+        Config base = null;
+        Iterator<String> it = Arrays.asList(args).iterator();
+        if (args.length > 0 && SCAN_COMMAND.equals(args[0])) {
+            it.next();
+        }
+        List<Runnable> overrides = new ArrayList<>();
+        while (it.hasNext()) {
+            String arg = it.next();
+            switch (arg) {
+                case "-h":
+                case "--help":
+                    return false;
+                case "-s":
+                case "--suffix":
+                    for (String suffix : value(it, arg).split(",")) {
+                        suffix = StringUtils.removeStart(suffix.trim(), ".").toLowerCase();
+                        if (StringUtils.isNotBlank(suffix)) {
+                            suffixes.add(suffix);
+                        }
+                    }
+                    break;
+                case "-a":
+                case "--action":
+                    action = enumValue(ProcessTypeEnum.class, value(it, arg), arg);
+                    break;
+                case "-l":
+                case "--log-root":
+                    logRoot = value(it, arg);
+                    break;
+                case "-o":
+                case "--output":
+                    output = value(it, arg);
+                    break;
+                case "-c":
+                case "--config":
+                    base = loadConfig(value(it, arg));
+                    break;
+                case "--hash":
+                    HashAlgorithmEnum algorithm = enumValue(HashAlgorithmEnum.class, value(it, arg), arg);
+                    overrides.add(() -> config.setHashAlgorithm(algorithm));
+                    break;
+                case "--hash-threads":
+                    int hashThreads = intValue(it, arg);
+                    overrides.add(() -> config.setHashThreads(hashThreads));
+                    break;
+                case "--verify-threads":
+                    int verifyThreads = intValue(it, arg);
+                    overrides.add(() -> config.setVerifyThreads(verifyThreads));
+                    break;
+                case "--readers-per-device":
+                    int readers = intValue(it, arg);
+                    overrides.add(() -> config.setReadersPerDevice(readers));
+                    break;
+                case "--readers-per-hdd":
+                    int hddReaders = intValue(it, arg);
+                    overrides.add(() -> config.setReadersPerRotationalDevice(hddReaders));
+                    break;
+                case "--walk-parallelism":
+                    int parallelism = intValue(it, arg);
+                    overrides.add(() -> config.setWalkParallelism(parallelism));
+                    break;
+                case "--walk-mode":
+                    WalkModeEnum walkMode = enumValue(WalkModeEnum.class, value(it, arg), arg);
+                    overrides.add(() -> config.setWalkMode(walkMode));
+                    break;
+                case "--spill-threshold":
+                    int spillThreshold = intValue(it, arg);
+                    overrides.add(() -> config.setSpillThreshold(spillThreshold));
+                    break;
+                case "--temp-dir":
+                    String tempDir = value(it, arg);
+                    overrides.add(() -> config.setTempDir(tempDir));
+                    break;
+                case "--no-cache":
+                    overrides.add(() -> config.setHashCacheEnabled(false));
+                    break;
+                case "--action-threads":
+                    int actionThreads = intValue(it, arg);
+                    overrides.add(() -> config.setActionThreads(actionThreads));
+                    break;
+                case "--dry-run":
+                    overrides.add(() -> config.setDryRun(true));
+                    break;
+                case "--permanent-delete":
+                    overrides.add(() -> config.setPermanentDelete(true));
+                    break;
+                case "--apply-plan":
+                    plan = value(it, arg);
+                    break;
+                case "--metrics":
+                    metrics = true;
+                    break;
+                case "-q":
+                case "--quiet":
+                    quiet = true;
+                    break;
+                default:
+                    if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("未知选项 " + arg);
+                    }
+                    dirs.add(arg);
+            }
+        }
+        if (null != plan) {
+            if (!new File(plan).isFile()) {
+                throw new IllegalArgumentException("处理计划不存在：" + plan);
+            }
+        } else if (dirs.isEmpty()) {
+            throw new IllegalArgumentException("缺少扫描目录");
+        }
+        for (String dir : dirs) {
+            if (!new File(dir).isDirectory()) {
+                throw new IllegalArgumentException("目录不存在：" + dir);
+            }
+        }
+        // 配置文件可以出现在任意位置，命令行选项总是覆盖配置文件中的值
+        config = null == base ? new Config() : base;
+        overrides.forEach(Runnable::run);
+        return true;
+    }
+
+    private int execute() {
+        if (null != plan) {
+            return applyPlan();
+        }
+        PrintWriter writer;
+        try {
+            writer = null == output ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : new PrintWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            err.println("结果文件无法写入：" + output + "，" + e.getMessage());
+            return EXIT_ERROR;
+        }
+        DuplicateFinder finder = DuplicateFinder.create(new ResultWriter(writer)).config(config);
+        DuplicateProcessor processor = null;
+        if (!ProcessTypeEnum.SCAN.equals(action)) {
+            processor = new DuplicateProcessor(logRoot, action, config);
+            finder.addListener(processor);
+        }
+        // Ctrl+C或kill时停止扫描并等待线程退出，已输出的结果保留
+        Thread hook = new Thread(finder::close, "duplicate-finder-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        try {
+            ScanHandle handle = finder.submit(dirs, suffixes);
+            ScanResult result = handle.getFuture().get();
+            if (!quiet) {
+                err.printf("扫描完成：文件 %d 个，重复文件 %d 个，耗时 %d ms%n",
+                        result.getTotalCount(), result.getDuplicateCount(), result.getElapsedMillis());
+            }
+            if (metrics) {
+                err.println("扫描指标：" + finder.getMetrics());
+            }
+            if (null != processor && processor.getReclaimedBytes() > 0 && !quiet) {
+                err.printf("链接释放空间 %d 字节%n", processor.getReclaimedBytes());
+            }
+            if (null != processor && null != processor.getPlanFile()) {
+                err.println("处理计划：" + processor.getPlanFile().getAbsolutePath());
+            }
+            return result.isCancelled() ? EXIT_CANCELLED : EXIT_OK;
+        } catch (ExecutionException e) {
+            err.println("扫描异常：" + e.getCause());
+            return EXIT_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_CANCELLED;
+        } finally {
+            writer.flush();
+            if (null != output) {
+                writer.close();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // 已在关闭过程中
+            }
+        }
+    }
+
+    private int applyPlan() {
+        DuplicateProcessor processor = new DuplicateProcessor(logRoot, action, config);
+        try {
+            long succeeded = processor.applyPlan(new File(plan));
+            if (!quiet) {
+                err.printf("处理计划执行完成，成功 %d 个，链接释放空间 %d 字节%n", succeeded, processor.getReclaimedBytes());
+            }
+            return EXIT_OK;
+        } catch (IOException | RuntimeException e) {
+            err.println("处理计划执行失败：" + e);
+            return EXIT_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_CANCELLED;
+        }
+    }
+
+    private Config loadConfig(String path) {
+        try {
+            return JSON.parseObject(FileUtils.readFileToString(new File(path), StandardCharsets.UTF_8), Config.class);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("配置文件读取失败：" + path + "，" + e.getMessage());
+        }
+    }
+
+    private static String value(Iterator<String> it, String option) {
+        if (!it.hasNext()) {
+            throw new IllegalArgumentException(option + " 缺少参数值");
+        }
+        return it.next();
+    }
+
+    private static int intValue(Iterator<String> it, String option) {
+        String value = value(it, option);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " 需要整数：" + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value, String option) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(option + " 可选值：" + Arrays.toString(type.getEnumConstants()));
+        }
+    }
+
+    /**
+     * 重复文件逐行输出，监听器由结果通知线程串行调用
+     */
+    private class ResultWriter implements DuplicateFinder.ScanListener {
+        private static final long PROGRESS_INTERVAL = 1000;
+        private final PrintWriter writer;
+        private volatile long total;
+        private volatile long lastProgress;
+        private volatile boolean progressShown;
+
+        private ResultWriter(PrintWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void duplicate(String first, String duplicate) {
+            writer.println(first + "\t" + duplicate);
+        }
+
+        @Override
+        public void process(long count) {
+            long now = System.currentTimeMillis();
+            if (!quiet && total > 0 && now - lastProgress >= PROGRESS_INTERVAL) {
+                lastProgress = now;
+                progressShown = true;
+                err.printf("\r已处理 %d / %d", count, total);
+            }
+        }
+
+        @Override
+        public void finish(long count) {
+            writer.flush();
+            endProgress();
+        }
+
+        @Override
+        public void totalCount(long count) {
+            total = count;
+        }
+
+        @Override
+        public void stage(ScanStageEnum stage, long inputCount, long outputCount, long savedBytes) {
+            if (!quiet) {
+                endProgress();
+                err.printf("[%s] 输入 %d，输出 %d，免读取 %d 字节%n", stage, inputCount, outputCount, savedBytes);
+            }
+        }
+
+        /**
+         * 进度以回车覆盖同一行输出，其他输出之前先换行
+         */
+        private void endProgress() {
+            if (progressShown) {
+                progressShown = false;
+                err.println();
+            }
+        }
+    }
+}
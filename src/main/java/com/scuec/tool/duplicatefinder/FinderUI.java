@@ -5,7 +5,9 @@ import com.scuec.tool.duplicatefinder.config.ConfigUtils;
 import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
 import com.scuec.tool.duplicatefinder.enums.ScanFileTypeEnum;
 import com.scuec.tool.duplicatefinder.util.DuplicateFinder;
+import com.scuec.tool.duplicatefinder.util.DuplicateGroup;
 import com.scuec.tool.duplicatefinder.util.DuplicateProcessor;
+import com.scuec.tool.duplicatefinder.util.DuplicateResults;
 import com.scuec.tool.duplicatefinder.util.Utils;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -61,12 +63,13 @@ public class FinderUI extends JFrame {
             normalFileTypeRadio.setSelected(true);
         }
 
-        if (ProcessTypeEnum.SCAN.equals(config.getProcessType())) {
-            scanRadio.setSelected(true);
-        } else if (ProcessTypeEnum.MOVE.equals(config.getProcessType())) {
+        // 界面只提供扫描、迁移、删除，其他处理方式(如命令行的链接)按仅扫描显示
+        if (ProcessTypeEnum.MOVE.equals(config.getProcessType())) {
             moveRadio.setSelected(true);
-        } else {
+        } else if (ProcessTypeEnum.REMOVE.equals(config.getProcessType())) {
             removeRadio.setSelected(true);
+        } else {
+            scanRadio.setSelected(true);
         }
 
         scanRootPath.setText(config.getScanLogRoot());
@@ -142,56 +145,33 @@ public class FinderUI extends JFrame {
             if (CollectionUtils.isNotEmpty(folders) && "开始扫描".equals(scan.getText())) {
                 scan.setText("停止扫描");
                 scanProgressBar.setStringPainted(true);
-                scanProgressBar.setString("计算待扫描文件数量 ...");
+                scanProgressBar.setString("扫描中 ...");
                 scanProgressBar.setVisible(true);
                 scanResult.setVisible(false);
 
                 // 启动扫描
                 java.util.List<String> dirs = folders.stream().map(row -> row.get(0)).collect(Collectors.toList());
-                finder = DuplicateFinder.create(new DuplicateFinder.ScanListener() {
-                    @Override
-                    public void duplicate(String first, String duplicate) {
-                        duplicateCount.incrementAndGet();
-                    }
-
-                    @Override
-                    public void process(long count) {
-                        scanProgressBar.setValue((int)count);
-                        scanCount.incrementAndGet();
-                        scanProgressBar.setString("扫描文件 " + scanCount.get() + "/" + totalCount.get());
-                    }
-
-                    @Override
-                    public void finish(long count) {
-                        scan.setText("开始扫描");
-                        scanProgressBar.setVisible(false);
-                        scanResult.setVisible(true);
-                        scanResult.setText("本次扫描文件" + scanCount.get() + "个，发现重复文件" + duplicateCount.get() + "个");
-                    }
-
-                    @Override
-                    public void totalCount(long count) {
-                        totalCount.set(count);
-                    }
-                });
+                finder = DuplicateFinder.create(new ScanProgressListener());
                 ProcessTypeEnum processType = ProcessTypeEnum.SCAN;
                 if (moveRadio.isSelected()) {
                     processType = ProcessTypeEnum.MOVE;
                 } else if (removeRadio.isSelected()) {
                     processType = ProcessTypeEnum.REMOVE;
                 }
-                finder.addListener(new DuplicateProcessor(scanRootPath.getText(), processType));
-
-                new Thread(() -> {
-                    long count = finder.count(dirs, allFileTypeRadio.isSelected() ? new String[]{} : normalFileType);
-                    totalCount.set(count);
-                    scanProgressBar.setMaximum((int) count);
-
-                    duplicateCount.set(0);
-                    scanCount.set(0);
-                    finder.scan(true, dirs, allFileTypeRadio.isSelected() ? new String[]{} : normalFileType);
-                }).start();
+                Config config = getApplicationConfig();
+                results = new DuplicateResults(config.isIndexOffHeap());
+                finder.addGroupListener(results);
+                finder.addListener(new DuplicateProcessor(scanRootPath.getText(), processType, config));
+                finder.config(config);
+
+                // 边遍历边扫描，待扫描文件总数随遍历进度更新
+                totalCount.set(0);
+                duplicateCount.set(0);
+                scanCount.set(0);
+                progressTimer.start();
+                finder.scan(true, dirs, allFileTypeRadio.isSelected() ? new String[]{} : normalFileType);
             } else {
+                progressTimer.stop();
                 scan.setText("开始扫描");
                 scanProgressBar.setVisible(false);
                 scanResult.setVisible(true);
@@ -202,6 +182,8 @@ public class FinderUI extends JFrame {
             }
         });
 
+        showResult.addActionListener(e -> new ResultBrowser(results, scanRootPath.getText(), getApplicationConfig()).showFrame());
+
         scanRootPath.addMouseListener(new LocalMouseListener() {
             @Override
             public void mousePressed(MouseEvent e) {
@@ -213,6 +195,58 @@ public class FinderUI extends JFrame {
         });
     }
 
+    /**
+     * 按固定间隔刷新进度条，数值没有变化时不重绘
+     */
+    private void refreshProgress() {
+        int total = (int) totalCount.get();
+        int count = (int) scanCount.get();
+        if (total == scanProgressBar.getMaximum() && count == scanProgressBar.getValue()) {
+            return;
+        }
+        scanProgressBar.setMaximum(total);
+        scanProgressBar.setValue(count);
+        scanProgressBar.setString("扫描文件 " + count + "/" + total);
+    }
+
+    /**
+     * 扫描监听：在扫描线程中调用，只记录数值，界面由progressTimer在事件分发线程中刷新。
+     * 重复文件按分组批量计数，不生成路径字符串
+     */
+    private class ScanProgressListener implements DuplicateFinder.ScanListener, DuplicateFinder.GroupListener {
+        @Override
+        public void groups(List<DuplicateGroup> groups) {
+            for (DuplicateGroup group : groups) {
+                duplicateCount.addAndGet(group.getDuplicates().size());
+            }
+        }
+
+        @Override
+        public void duplicate(String first, String duplicate) {
+        }
+
+        @Override
+        public void process(long count) {
+            scanCount.set(count);
+        }
+
+        @Override
+        public void finish(long count) {
+            SwingUtilities.invokeLater(() -> {
+                progressTimer.stop();
+                scan.setText("开始扫描");
+                scanProgressBar.setVisible(false);
+                scanResult.setVisible(true);
+                scanResult.setText("本次扫描文件" + scanCount.get() + "个，发现重复文件" + duplicateCount.get() + "个");
+            });
+        }
+
+        @Override
+        public void totalCount(long count) {
+            totalCount.set(count);
+        }
+    }
+
     private abstract class LocalMouseListener implements MouseListener {
         @Override
         public void mouseClicked(MouseEvent e) {}
@@ -238,6 +272,9 @@ public class FinderUI extends JFrame {
     AtomicLong totalCount = new AtomicLong(0);
     AtomicLong scanCount = new AtomicLong(0);
     AtomicLong duplicateCount = new AtomicLong(0);
+    Timer progressTimer = new Timer(100, e -> refreshProgress());
+    DuplicateResults results = new DuplicateResults();
+    JButton showResult = new JButton("查看结果");
     JRadioButton normalFileTypeRadio = new JRadioButton("常见格式(jpeg,mov,mp3,mp4,txt,docx,xlsx)");
     String[] normalFileType = new String[]{"jpeg","mov","mp3","mp4","txt","docx","xlsx"};
     JRadioButton allFileTypeRadio = new JRadioButton("全部格式");
@@ -288,6 +325,7 @@ public class FinderUI extends JFrame {
         setComponentPosition(scanProgressBar, 0, 9, 8, 1);
         setComponentPosition(scanResult, 0, 9, 8, 1);
         setComponentPosition(scan, 8, 9, 4, 1);
+        setComponentPosition(showResult, 8, 10, 4, 1);
     }
 
     private void setComponentPosition(JComponent component, int x, int y, int w, int h) {
@@ -307,6 +345,11 @@ public class FinderUI extends JFrame {
     }
 
     public static void main(String[] argv) {
+        // 带参数或没有图形界面时以命令行方式运行
+        if (argv.length > 0 || GraphicsEnvironment.isHeadless()) {
+            FinderCli.main(argv);
+            return;
+        }
         new FinderUI().showFrame();
     }
 }
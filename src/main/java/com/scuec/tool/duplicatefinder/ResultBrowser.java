@@ -0,0 +1,312 @@
+package com.scuec.tool.duplicatefinder;
+
+import com.scuec.tool.duplicatefinder.config.Config;
+import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
+import com.scuec.tool.duplicatefinder.util.DuplicateGroup;
+import com.scuec.tool.duplicatefinder.util.DuplicateProcessor;
+import com.scuec.tool.duplicatefinder.util.DuplicateResults;
+import com.scuec.tool.duplicatefinder.util.FileEntry;
+import org.apache.commons.io.FileUtils;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 扫描结果浏览：每行一个重复文件分组，按可回收空间从大到小排列，可以按格式过滤并迁移、删除选中的分组。
+ * 表格只读取可见行所在的页，千万级分组时也不会一次性还原全部文件
+ */
+public class ResultBrowser extends JFrame {
+    private static final String ALL_SUFFIX = "全部格式";
+    private final DuplicateResults results;
+    private final String scanRootPath;
+    private final Config config;
+    private final GroupTableModel groupModel = new GroupTableModel();
+    private final FileTableModel fileModel = new FileTableModel();
+    private int viewGeneration;
+
+    JComboBox<String> suffixFilter = new JComboBox<>();
+    JButton refresh = new JButton("刷新");
+    JLabel summary = new JLabel();
+    JTable groupTable = new JTable(groupModel);
+    JTable fileTable = new JTable(fileModel);
+    JButton moveSelected = new JButton("迁移选中分组");
+    JButton removeSelected = new JButton("删除选中分组");
+
+    public ResultBrowser(DuplicateResults results, String scanRootPath, Config config) {
+        super("扫描结果");
+        this.results = results;
+        this.scanRootPath = scanRootPath;
+        this.config = config;
+        layoutComponents();
+        initActionListener();
+        reload();
+    }
+
+    public void showFrame() {
+        setBounds(450, 450, 900, 600);
+        setVisible(true);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+    }
+
+    private void layoutComponents() {
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("文件格式"));
+        top.add(suffixFilter);
+        top.add(refresh);
+        top.add(summary);
+
+        // 行数可能很多，不使用行排序器遍历全部行，排序由结果视图完成
+        groupTable.setAutoCreateRowSorter(false);
+        groupTable.getColumnModel().getColumn(0).setPreferredWidth(420);
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(groupTable), new JScrollPane(fileTable));
+        split.setResizeWeight(0.7);
+
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottom.add(moveSelected);
+        bottom.add(removeSelected);
+
+        getContentPane().setLayout(new BorderLayout());
+        getContentPane().add(top, BorderLayout.NORTH);
+        getContentPane().add(split, BorderLayout.CENTER);
+        getContentPane().add(bottom, BorderLayout.SOUTH);
+    }
+
+    private void initActionListener() {
+        refresh.addActionListener(e -> reload());
+        suffixFilter.addActionListener(e -> {
+            if (suffixFilter.isEnabled()) {
+                loadView();
+            }
+        });
+        groupTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                int row = groupTable.getSelectionModel().getLeadSelectionIndex();
+                fileModel.setGroup(row >= 0 && row < groupModel.getRowCount() ? groupModel.view.getGroup(row) : null);
+            }
+        });
+        moveSelected.addActionListener(e -> processSelected(ProcessTypeEnum.MOVE));
+        removeSelected.addActionListener(e -> {
+            if (JOptionPane.showConfirmDialog(this, "确定删除选中分组中的重复文件？", "删除重复文件",
+                    JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                processSelected(ProcessTypeEnum.REMOVE);
+            }
+        });
+    }
+
+    /**
+     * 重新读取全部分组，扫描进行中时可以多次刷新
+     */
+    private void reload() {
+        String selected = selectedSuffix();
+        suffixFilter.setEnabled(false);
+        suffixFilter.removeAllItems();
+        suffixFilter.addItem(ALL_SUFFIX);
+        List<String> suffixes = results.getSuffixes();
+        Collections.sort(suffixes);
+        suffixes.forEach(suffixFilter::addItem);
+        suffixFilter.setSelectedItem(null == selected ? ALL_SUFFIX : selected);
+        suffixFilter.setEnabled(true);
+        loadView();
+        summary.setText("重复分组 " + results.size() + " 个，文件 " + results.getFileCount() + " 个，可回收 "
+                + FileUtils.byteCountToDisplaySize(results.getWastedBytes()));
+    }
+
+    /**
+     * 千万级分组时排序需要数秒，在后台线程中生成视图，完成后再替换表格数据
+     */
+    private void loadView() {
+        String suffix = selectedSuffix();
+        int generation = ++viewGeneration;
+        refresh.setEnabled(false);
+        new SwingWorker<DuplicateResults.View, Void>() {
+            @Override
+            protected DuplicateResults.View doInBackground() {
+                return results.view(suffix);
+            }
+
+            @Override
+            protected void done() {
+                // 连续切换过滤条件时只使用最后一次生成的视图
+                if (generation != viewGeneration) {
+                    return;
+                }
+                refresh.setEnabled(true);
+                try {
+                    groupModel.setView(get());
+                    fileModel.setGroup(null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(ResultBrowser.this, "读取扫描结果失败：" + e.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private String selectedSuffix() {
+        Object selected = suffixFilter.getSelectedItem();
+        return null == selected || ALL_SUFFIX.equals(selected) ? null : selected.toString();
+    }
+
+    /**
+     * 在后台线程中处理选中的分组，处理方式、日志及试运行与扫描时的处理相同
+     */
+    private void processSelected(ProcessTypeEnum processType) {
+        int[] rows = groupTable.getSelectedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        DuplicateResults.View view = groupModel.view;
+        moveSelected.setEnabled(false);
+        removeSelected.setEnabled(false);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                DuplicateProcessor processor = new DuplicateProcessor(scanRootPath, processType, config);
+                int count = 0;
+                for (int row : rows) {
+                    if (results.isProcessed(view.group(row))) {
+                        continue;
+                    }
+                    DuplicateGroup group = view.getGroup(row);
+                    String first = group.getRetained().getAbsolutePath();
+                    for (FileEntry duplicate : group.getDuplicates()) {
+                        processor.duplicate(first, duplicate.getAbsolutePath());
+                        count++;
+                    }
+                    results.markProcessed(view.group(row));
+                }
+                processor.finish(count);
+                return count;
+            }
+
+            @Override
+            protected void done() {
+                moveSelected.setEnabled(true);
+                removeSelected.setEnabled(true);
+                groupModel.invalidate();
+                try {
+                    summary.setText((config.isDryRun() ? "已写入处理计划 " : "已处理重复文件 ") + get() + " 个，详细结果见处理日志");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(ResultBrowser.this, "处理失败：" + e.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * 分组表格：按页从结果中读取，只缓存最近访问的若干页
+     */
+    private class GroupTableModel extends AbstractTableModel {
+        private static final int PAGE_SIZE = 256;
+        private static final int MAX_PAGES = 32;
+        private final String[] columns = {"保留文件", "格式", "文件大小", "文件数", "可回收空间", "状态"};
+        private final Map<Integer, Object[][]> pages = new LinkedHashMap<Integer, Object[][]>(MAX_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+        private DuplicateResults.View view;
+
+        void setView(DuplicateResults.View view) {
+            this.view = view;
+            pages.clear();
+            fireTableDataChanged();
+        }
+
+        void invalidate() {
+            pages.clear();
+            if (getRowCount() > 0) {
+                fireTableRowsUpdated(0, getRowCount() - 1);
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return null == view ? 0 : view.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return pages.computeIfAbsent(row / PAGE_SIZE, this::loadPage)[row % PAGE_SIZE][column];
+        }
+
+        private Object[][] loadPage(int page) {
+            int start = page * PAGE_SIZE;
+            int end = Math.min(start + PAGE_SIZE, view.size());
+            Object[][] rows = new Object[end - start][];
+            for (int row = start; row < end; row++) {
+                rows[row - start] = new Object[]{
+                        view.getRetained(row).getAbsolutePath(),
+                        view.getSuffix(row),
+                        FileUtils.byteCountToDisplaySize(view.getSize(row)),
+                        view.getFileCount(row),
+                        FileUtils.byteCountToDisplaySize(view.getWastedBytes(row)),
+                        results.isProcessed(view.group(row)) ? (config.isDryRun() ? "已写入计划" : "已处理") : ""
+                };
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * 选中分组中的全部文件，第一个为保留的文件
+     */
+    private static class FileTableModel extends AbstractTableModel {
+        private final String[] columns = {"文件路径", "修改时间", "类型"};
+        private DuplicateGroup group;
+
+        void setGroup(DuplicateGroup group) {
+            this.group = group;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return null == group ? 0 : group.getDuplicates().size() + 1;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FileEntry entry = row == 0 ? group.getRetained() : group.getDuplicates().get(row - 1);
+            switch (column) {
+                case 0:
+                    return entry.getAbsolutePath();
+                case 1:
+                    return new Date(entry.getLastModified());
+                default:
+                    return row == 0 ? "保留" : "重复";
+            }
+        }
+    }
+}
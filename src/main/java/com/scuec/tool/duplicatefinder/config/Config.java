@@ -1,7 +1,9 @@
 package com.scuec.tool.duplicatefinder.config;
 
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
 import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
 import com.scuec.tool.duplicatefinder.enums.ScanFileTypeEnum;
+import com.scuec.tool.duplicatefinder.enums.WalkModeEnum;
 import com.scuec.tool.duplicatefinder.util.Utils;
 
 import java.util.ArrayList;
@@ -13,6 +15,100 @@ public class Config {
     private List<String> scanFileTypeList = new ArrayList<>();
     private ProcessTypeEnum processType = ProcessTypeEnum.SCAN;
     private String scanLogRoot = Utils.getHomeDirectory();
+    /**
+     * 部分摘要读取的块大小(字节)，首尾各读取一块
+     */
+    private int partialBlockSize = 4096;
+    /**
+     * 部分摘要在首尾块之间均匀采样的块数
+     */
+    private int partialSampleCount = 2;
+    /**
+     * 文件内容摘要算法
+     */
+    private HashAlgorithmEnum hashAlgorithm = HashAlgorithmEnum.XXHASH64;
+    /**
+     * 文件不小于该大小(字节)时使用内存映射读取，小于等于0时不使用内存映射
+     */
+    private long mmapThreshold = 64L * 1024 * 1024;
+    /**
+     * 是否启用持久化摘要缓存，未变化的文件再次扫描时无需读取
+     */
+    private boolean hashCacheEnabled = true;
+    /**
+     * 目录遍历并行度，小于等于0时使用CPU核数
+     */
+    private int walkParallelism = 0;
+    /**
+     * 目录遍历的线程模式
+     */
+    private WalkModeEnum walkMode = WalkModeEnum.PLATFORM;
+    /**
+     * 虚拟线程遍历时同时进行的目录读取数上限
+     */
+    private int walkConcurrency = 10000;
+    /**
+     * 遍历时是否跟随符号链接
+     */
+    private boolean followLinks = false;
+    /**
+     * 部分摘要、全量摘要阶段每个固态硬盘或类型未知设备的读取线程数，机械硬盘使用readersPerRotationalDevice；
+     * 小于等于0时不按设备调度，各阶段使用hashThreads个线程
+     */
+    private int readersPerDevice = 4;
+    /**
+     * 不按设备调度时，部分摘要、全量摘要阶段各自的线程数
+     */
+    private int hashThreads = 4;
+    /**
+     * 内容比对阶段线程数
+     */
+    private int verifyThreads = 2;
+    /**
+     * 流水线各阶段之间的队列容量，队列满时上游阻塞
+     */
+    private int queueCapacity = 1024;
+    /**
+     * 扫描索引(路径、大小、修改时间)是否存放在堆外内存，文件数量极大时可减少堆占用和GC压力
+     */
+    private boolean indexOffHeap = false;
+    /**
+     * 外部排序分组模式下内存中最多保留的文件记录数，超过时排序后写入临时目录；
+     * 小于等于0时不使用外部排序，全部分组保存在内存中
+     */
+    private int spillThreshold = 0;
+    /**
+     * 外部排序段文件所在目录，为空时使用系统临时目录
+     */
+    private String tempDir = "";
+    /**
+     * 移动、删除重复文件的线程数
+     */
+    private int actionThreads = 2;
+    /**
+     * 每个处理线程一次取出的重复文件数
+     */
+    private int actionBatchSize = 64;
+    /**
+     * 试运行：只生成处理计划文件，不移动或删除文件
+     */
+    private boolean dryRun = false;
+    /**
+     * 扫描进度通知间隔(毫秒)，间隔内的进度合并为一次通知，小于等于0时每个文件通知一次
+     */
+    private long progressInterval = 100;
+    /**
+     * 重复文件分组批量通知时每批最多包含的分组数
+     */
+    private int listenerBatchSize = 256;
+    /**
+     * 删除重复文件时不支持回收站(如无图形界面)则直接永久删除，默认不删除并记为失败
+     */
+    private boolean permanentDelete = false;
+    /**
+     * 按设备调度时每个机械硬盘(Linux下sysfs中queue/rotational为1)的读取线程数，避免并发读取造成寻道抖动
+     */
+    private int readersPerRotationalDevice = 1;
 
     public List<String> getScanFolderList() {
         return scanFolderList;
@@ -53,4 +149,188 @@ public class Config {
     public void setScanLogRoot(String scanLogRoot) {
         this.scanLogRoot = scanLogRoot;
     }
+
+    public int getPartialBlockSize() {
+        return partialBlockSize;
+    }
+
+    public void setPartialBlockSize(int partialBlockSize) {
+        this.partialBlockSize = partialBlockSize;
+    }
+
+    public int getPartialSampleCount() {
+        return partialSampleCount;
+    }
+
+    public void setPartialSampleCount(int partialSampleCount) {
+        this.partialSampleCount = partialSampleCount;
+    }
+
+    public HashAlgorithmEnum getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public void setHashAlgorithm(HashAlgorithmEnum hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+    }
+
+    public long getMmapThreshold() {
+        return mmapThreshold;
+    }
+
+    public void setMmapThreshold(long mmapThreshold) {
+        this.mmapThreshold = mmapThreshold;
+    }
+
+    public boolean isHashCacheEnabled() {
+        return hashCacheEnabled;
+    }
+
+    public void setHashCacheEnabled(boolean hashCacheEnabled) {
+        this.hashCacheEnabled = hashCacheEnabled;
+    }
+
+    public int getWalkParallelism() {
+        return walkParallelism;
+    }
+
+    public void setWalkParallelism(int walkParallelism) {
+        this.walkParallelism = walkParallelism;
+    }
+
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    public void setFollowLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+    }
+
+    public int getHashThreads() {
+        return hashThreads;
+    }
+
+    public void setHashThreads(int hashThreads) {
+        this.hashThreads = hashThreads;
+    }
+
+    public int getVerifyThreads() {
+        return verifyThreads;
+    }
+
+    public void setVerifyThreads(int verifyThreads) {
+        this.verifyThreads = verifyThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getReadersPerDevice() {
+        return readersPerDevice;
+    }
+
+    public void setReadersPerDevice(int readersPerDevice) {
+        this.readersPerDevice = readersPerDevice;
+    }
+
+    public boolean isIndexOffHeap() {
+        return indexOffHeap;
+    }
+
+    public void setIndexOffHeap(boolean indexOffHeap) {
+        this.indexOffHeap = indexOffHeap;
+    }
+
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    public void setSpillThreshold(int spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    public String getTempDir() {
+        return tempDir;
+    }
+
+    public void setTempDir(String tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    public WalkModeEnum getWalkMode() {
+        return walkMode;
+    }
+
+    public void setWalkMode(WalkModeEnum walkMode) {
+        this.walkMode = walkMode;
+    }
+
+    public int getWalkConcurrency() {
+        return walkConcurrency;
+    }
+
+    public void setWalkConcurrency(int walkConcurrency) {
+        this.walkConcurrency = walkConcurrency;
+    }
+
+    public int getActionThreads() {
+        return actionThreads;
+    }
+
+    public void setActionThreads(int actionThreads) {
+        this.actionThreads = actionThreads;
+    }
+
+    public int getActionBatchSize() {
+        return actionBatchSize;
+    }
+
+    public void setActionBatchSize(int actionBatchSize) {
+        this.actionBatchSize = actionBatchSize;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    public int getListenerBatchSize() {
+        return listenerBatchSize;
+    }
+
+    public void setListenerBatchSize(int listenerBatchSize) {
+        this.listenerBatchSize = listenerBatchSize;
+    }
+
+    public boolean isPermanentDelete() {
+        return permanentDelete;
+    }
+
+    public void setPermanentDelete(boolean permanentDelete) {
+        this.permanentDelete = permanentDelete;
+    }
+
+    public int getReadersPerRotationalDevice() {
+        return readersPerRotationalDevice;
+    }
+
+    public void setReadersPerRotationalDevice(int readersPerRotationalDevice) {
+        this.readersPerRotationalDevice = readersPerRotationalDevice;
+    }
 }
@@ -61,6 +61,13 @@ public class ConfigUtils {
         return false;
     }
 
+    /**
+     * 获取默认配置目录下的数据文件路径，如摘要缓存
+     */
+    public static String getDataFilePath(String name) {
+        return getAbsoluteRoot(Utils.getHomeDirectory()) + File.separator + name;
+    }
+
     private static String getConfigFilePath(String root) {
         return root + File.separator + DEFAULT_ROOT_NAME + File.separator + CONFIG_NAME;
     }
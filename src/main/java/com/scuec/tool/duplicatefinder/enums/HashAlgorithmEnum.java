@@ -0,0 +1,18 @@
+package com.scuec.tool.duplicatefinder.enums;
+
+/**
+ * 文件内容摘要算法
+ */
+public enum HashAlgorithmEnum {
+    /**
+     * 非加密摘要，速度最快，默认算法
+     */
+    XXHASH64,
+    /**
+     * 非加密校验和，JDK内置且有硬件指令加速，仅32位
+     */
+    CRC32C,
+    MD5,
+    SHA256,
+    BLAKE3
+}
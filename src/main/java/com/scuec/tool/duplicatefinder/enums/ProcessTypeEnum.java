@@ -1,5 +1,13 @@
 package com.scuec.tool.duplicatefinder.enums;
 
 public enum ProcessTypeEnum {
-    SCAN, REMOVE, MOVE
+    SCAN, REMOVE, MOVE,
+    /**
+     * 重复文件替换为保留文件的硬链接，路径全部保留，内容只存储一份
+     */
+    LINK,
+    /**
+     * 重复文件替换为保留文件的写时复制副本，需要文件系统支持reflink
+     */
+    REFLINK
 }
@@ -0,0 +1,27 @@
+package com.scuec.tool.duplicatefinder.enums;
+
+/**
+ * 扫描流水线的各个阶段
+ */
+public enum ScanStageEnum {
+    /**
+     * 遍历目录，收集待扫描文件
+     */
+    WALK,
+    /**
+     * 按(后缀, 文件大小)分桶，剔除大小唯一的文件
+     */
+    SIZE,
+    /**
+     * 仅读取首尾及采样块计算部分摘要，剔除部分摘要唯一的文件
+     */
+    PARTIAL,
+    /**
+     * 对部分摘要相同的候选文件计算全量摘要，剔除全量摘要唯一的文件
+     */
+    HASH,
+    /**
+     * 全量摘要相同的文件按组同步读取、逐字节比对，输出重复文件数
+     */
+    VERIFY
+}
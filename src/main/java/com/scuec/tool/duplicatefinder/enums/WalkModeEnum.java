@@ -0,0 +1,16 @@
+package com.scuec.tool.duplicatefinder.enums;
+
+/**
+ * 目录遍历的线程模式
+ */
+public enum WalkModeEnum {
+    /**
+     * 平台线程，ForkJoinPool工作窃取，适合本地磁盘
+     */
+    PLATFORM,
+    /**
+     * 每个目录一个虚拟线程(JDK 21+)，适合NFS/SMB等元数据调用延迟高的文件系统，
+     * 大量目录读取及属性读取可以同时等待；运行时不支持虚拟线程时退回PLATFORM
+     */
+    VIRTUAL
+}
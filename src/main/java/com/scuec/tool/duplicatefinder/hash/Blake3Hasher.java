@@ -0,0 +1,55 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import org.apache.commons.codec.digest.Blake3;
+
+import java.nio.ByteBuffer;
+
+public class Blake3Hasher implements ContentHasher {
+    private static final int DIGEST_LENGTH = 32;
+    private final Blake3 blake3 = Blake3.initHash();
+    private final byte[] chunk = new byte[8192];
+    private byte[] digest;
+
+    @Override
+    public HashAlgorithmEnum getAlgorithm() {
+        return HashAlgorithmEnum.BLAKE3;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        blake3.update(buffer, offset, length);
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            ContentHasher.super.update(buffer);
+            return;
+        }
+        while (buffer.hasRemaining()) {
+            int length = Math.min(buffer.remaining(), chunk.length);
+            buffer.get(chunk, 0, length);
+            blake3.update(chunk, 0, length);
+        }
+    }
+
+    @Override
+    public long getValue() {
+        return ContentHashers.toLong(digest());
+    }
+
+    @Override
+    public byte[] digest() {
+        if (null == digest) {
+            digest = blake3.doFinalize(DIGEST_LENGTH);
+        }
+        return digest;
+    }
+
+    @Override
+    public void reset() {
+        blake3.reset();
+        digest = null;
+    }
+}
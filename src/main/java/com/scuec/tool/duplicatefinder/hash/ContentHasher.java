@@ -0,0 +1,50 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 文件内容摘要计算接口，用法与{@link java.util.zip.Checksum}一致：
+ * 多次调用update后通过getValue/digest获取结果，reset后可重复使用。
+ * 实现类均非线程安全，每个线程应持有独立实例。
+ */
+public interface ContentHasher {
+    HashAlgorithmEnum getAlgorithm();
+
+    void update(byte[] buffer, int offset, int length);
+
+    default void update(byte[] buffer) {
+        update(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 读取缓冲区中position到limit之间的数据，完成后position等于limit。
+     * 默认实现拷贝到堆内数组，实现类应尽量直接读取直接内存缓冲区
+     */
+    default void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(buffer.remaining(), chunk.length);
+            buffer.get(chunk, 0, length);
+            update(chunk, 0, length);
+        }
+    }
+
+    /**
+     * 获取64位摘要值，摘要不足64位时高位补0，超过64位时取前8个字节，用于分组比较
+     */
+    long getValue();
+
+    /**
+     * 获取完整摘要
+     */
+    byte[] digest();
+
+    void reset();
+}
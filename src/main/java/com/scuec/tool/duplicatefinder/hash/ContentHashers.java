@@ -0,0 +1,40 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+
+public class ContentHashers {
+
+    public static ContentHasher create(HashAlgorithmEnum algorithm) {
+        if (null == algorithm) {
+            algorithm = HashAlgorithmEnum.XXHASH64;
+        }
+        switch (algorithm) {
+            case CRC32C:
+                return new Crc32cHasher();
+            case MD5:
+                return new MessageDigestHasher(HashAlgorithmEnum.MD5, "MD5");
+            case SHA256:
+                return new MessageDigestHasher(HashAlgorithmEnum.SHA256, "SHA-256");
+            case BLAKE3:
+                return new Blake3Hasher();
+            case XXHASH64:
+            default:
+                return new XxHash64Hasher();
+        }
+    }
+
+    /**
+     * 每个线程持有一个独立的摘要实例，避免每个文件都重新创建
+     */
+    public static ThreadLocal<ContentHasher> threadLocal(HashAlgorithmEnum algorithm) {
+        return ThreadLocal.withInitial(() -> create(algorithm));
+    }
+
+    static long toLong(byte[] digest) {
+        long value = 0;
+        for (int i = 0; i < Math.min(digest.length, Long.BYTES); i++) {
+            value = (value << 8) | (digest[i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,41 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+public class Crc32cHasher implements ContentHasher {
+    private final CRC32C crc = new CRC32C();
+
+    @Override
+    public HashAlgorithmEnum getAlgorithm() {
+        return HashAlgorithmEnum.CRC32C;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        crc.update(buffer, offset, length);
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        crc.update(buffer);
+    }
+
+    @Override
+    public long getValue() {
+        return crc.getValue();
+    }
+
+    @Override
+    public byte[] digest() {
+        long value = crc.getValue();
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    @Override
+    public void reset() {
+        crc.reset();
+    }
+}
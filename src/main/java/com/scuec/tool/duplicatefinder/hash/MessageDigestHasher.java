@@ -0,0 +1,60 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 基于JDK {@link MessageDigest}的摘要实现(MD5、SHA-256)
+ */
+public class MessageDigestHasher implements ContentHasher {
+    private final HashAlgorithmEnum algorithm;
+    private final MessageDigest messageDigest;
+    private byte[] digest;
+
+    public MessageDigestHasher(HashAlgorithmEnum algorithm, String name) {
+        this.algorithm = algorithm;
+        try {
+            this.messageDigest = MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("不支持的摘要算法：" + name, e);
+        }
+    }
+
+    @Override
+    public HashAlgorithmEnum getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        messageDigest.update(buffer, offset, length);
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        messageDigest.update(buffer);
+    }
+
+    @Override
+    public long getValue() {
+        return ContentHashers.toLong(digest());
+    }
+
+    @Override
+    public byte[] digest() {
+        // MessageDigest.digest()会重置状态，缓存结果以支持getValue/digest重复调用
+        if (null == digest) {
+            digest = messageDigest.digest();
+        }
+        return digest;
+    }
+
+    @Override
+    public void reset() {
+        messageDigest.reset();
+        digest = null;
+    }
+}
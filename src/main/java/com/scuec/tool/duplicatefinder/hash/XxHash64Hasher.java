@@ -0,0 +1,169 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * xxHash64流式实现(seed为0)，参考 https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md
+ */
+public class XxHash64Hasher implements ContentHasher {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final byte[] stripe = new byte[STRIPE];
+    private int stripeLength;
+    private long totalLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    public XxHash64Hasher() {
+        reset();
+    }
+
+    @Override
+    public HashAlgorithmEnum getAlgorithm() {
+        return HashAlgorithmEnum.XXHASH64;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        totalLength += length;
+        int end = offset + length;
+        // 先补齐上次剩余的不完整分段
+        if (stripeLength > 0) {
+            int fill = Math.min(STRIPE - stripeLength, length);
+            System.arraycopy(buffer, offset, stripe, stripeLength, fill);
+            stripeLength += fill;
+            offset += fill;
+            if (stripeLength < STRIPE) {
+                return;
+            }
+            consume(stripe, 0);
+            stripeLength = 0;
+        }
+        for (; offset + STRIPE <= end; offset += STRIPE) {
+            consume(buffer, offset);
+        }
+        if (offset < end) {
+            stripeLength = end - offset;
+            System.arraycopy(buffer, offset, stripe, 0, stripeLength);
+        }
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        ByteBuffer source = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int length = source.remaining();
+        buffer.position(buffer.limit());
+        totalLength += length;
+        int offset = 0;
+        if (stripeLength > 0) {
+            int fill = Math.min(STRIPE - stripeLength, length);
+            for (int i = 0; i < fill; i++) {
+                stripe[stripeLength++] = source.get(offset++);
+            }
+            if (stripeLength < STRIPE) {
+                return;
+            }
+            consume(stripe, 0);
+            stripeLength = 0;
+        }
+        for (; offset + STRIPE <= length; offset += STRIPE) {
+            v1 = round(v1, source.getLong(offset));
+            v2 = round(v2, source.getLong(offset + 8));
+            v3 = round(v3, source.getLong(offset + 16));
+            v4 = round(v4, source.getLong(offset + 24));
+        }
+        while (offset < length) {
+            stripe[stripeLength++] = source.get(offset++);
+        }
+    }
+
+    private void consume(byte[] buffer, int offset) {
+        v1 = round(v1, (long) LONG_LE.get(buffer, offset));
+        v2 = round(v2, (long) LONG_LE.get(buffer, offset + 8));
+        v3 = round(v3, (long) LONG_LE.get(buffer, offset + 16));
+        v4 = round(v4, (long) LONG_LE.get(buffer, offset + 24));
+    }
+
+    @Override
+    public long getValue() {
+        long hash;
+        if (totalLength >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+        hash += totalLength;
+
+        int offset = 0;
+        for (; offset + 8 <= stripeLength; offset += 8) {
+            hash ^= round(0, (long) LONG_LE.get(stripe, offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (offset + 4 <= stripeLength) {
+            hash ^= ((int) INT_LE.get(stripe, offset) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            offset += 4;
+        }
+        for (; offset < stripeLength; offset++) {
+            hash ^= (stripe[offset] & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    @Override
+    public byte[] digest() {
+        long value = getValue();
+        byte[] digest = new byte[Long.BYTES];
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            digest[i] = (byte) value;
+            value >>>= 8;
+        }
+        return digest;
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0;
+        v4 = -PRIME64_1;
+        stripeLength = 0;
+        totalLength = 0;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+}
@@ -0,0 +1,213 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 重复文件处理阶段：确认的重复文件进入有界队列，由独立的工作线程批量移动、删除或替换为链接，
+ * 磁盘写入不再阻塞扫描结果的通知线程。队列满时提交方阻塞等待
+ */
+public class ActionExecutor implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActionExecutor.class);
+    private final BlockingQueue<DuplicateAction> queue;
+    private final ActionListener listener;
+    private final int batchSize;
+    private final PipelineStage.Tracker tracker = new PipelineStage.Tracker();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong succeeded = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicLong reclaimedBytes = new AtomicLong(0);
+    private final Map<String, AtomicLong> reclaimedByGroup = new ConcurrentHashMap<>();
+    private final FileLinker linker = new FileLinker();
+    private final boolean permanentDelete;
+    private volatile boolean closed;
+
+    public ActionExecutor(int threads, int batchSize, ActionListener listener) {
+        this(threads, batchSize, false, listener);
+    }
+
+    /**
+     * @param threads         工作线程数
+     * @param batchSize       每个线程一次从队列取出的最大动作数
+     * @param permanentDelete 不支持回收站时是否直接永久删除
+     * @param listener        每个动作执行前后的回调，由工作线程调用
+     */
+    public ActionExecutor(int threads, int batchSize, boolean permanentDelete, ActionListener listener) {
+        this.batchSize = Math.max(batchSize, 1);
+        this.permanentDelete = permanentDelete;
+        this.queue = new ArrayBlockingQueue<>(Math.max(threads, 1) * this.batchSize * 4);
+        this.listener = listener;
+        for (int i = 0; i < Math.max(threads, 1); i++) {
+            Thread worker = new Thread(this::work, "duplicate-finder-action-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public void submit(DuplicateAction action) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("处理阶段已关闭");
+        }
+        tracker.increment();
+        try {
+            queue.put(action);
+        } catch (InterruptedException e) {
+            tracker.decrement();
+            throw e;
+        }
+    }
+
+    /**
+     * 执行整个处理计划并等待完成
+     */
+    public void execute(List<DuplicateAction> actions) throws InterruptedException {
+        for (DuplicateAction action : actions) {
+            submit(action);
+        }
+        awaitIdle();
+    }
+
+    /**
+     * 等待已提交的动作全部执行完
+     */
+    public void awaitIdle() throws InterruptedException {
+        tracker.awaitIdle();
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 硬链接、reflink释放的总字节数
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * 按分组(保留文件)输出释放的字节数
+     */
+    public void forEachReclaimed(BiConsumer<String, Long> action) {
+        reclaimedByGroup.forEach((first, bytes) -> action.accept(first, bytes.get()));
+    }
+
+    /**
+     * 执行完队列中剩余的动作后结束工作线程，等待期间被中断时不再等待，保留中断状态
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("等待重复文件处理线程结束时被中断");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        List<DuplicateAction> batch = new ArrayList<>(batchSize);
+        Set<String> targets = new HashSet<>();
+        while (!closed || !queue.isEmpty()) {
+            DuplicateAction first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (null == first) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            for (DuplicateAction action : batch) {
+                // 同一批中的目标目录只检查创建一次
+                if (ProcessTypeEnum.MOVE.equals(action.getType()) && targets.add(action.getTarget())) {
+                    Utils.mkdirs(action.getTarget());
+                }
+            }
+            for (DuplicateAction action : batch) {
+                try {
+                    apply(action);
+                } catch (Throwable t) {
+                    failed.incrementAndGet();
+                    LOGGER.warn("重复文件处理异常：{}", action, t);
+                } finally {
+                    tracker.decrement();
+                }
+            }
+            batch.clear();
+            targets.clear();
+        }
+    }
+
+    private void apply(DuplicateAction action) {
+        if (null != listener && !listener.before(action)) {
+            return;
+        }
+        boolean success;
+        ProcessTypeEnum type = action.getType();
+        if (ProcessTypeEnum.MOVE.equals(type)) {
+            success = Utils.moveTo(action.getDuplicate(), action.getTarget());
+        } else if (ProcessTypeEnum.REMOVE.equals(type)) {
+            success = Utils.removeFile(new File(action.getDuplicate()), permanentDelete);
+        } else if (ProcessTypeEnum.LINK.equals(type) || ProcessTypeEnum.REFLINK.equals(type)) {
+            success = link(action, ProcessTypeEnum.REFLINK.equals(type));
+        } else {
+            return;
+        }
+        (success ? succeeded : failed).incrementAndGet();
+        if (null != listener) {
+            listener.after(action, success);
+        }
+    }
+
+    private boolean link(DuplicateAction action, boolean reflink) {
+        Path first = Paths.get(action.getFirst());
+        Path duplicate = Paths.get(action.getDuplicate());
+        long bytes;
+        try {
+            bytes = reflink ? linker.reflink(first, duplicate) : linker.link(first, duplicate);
+        } catch (IOException e) {
+            LOGGER.warn("重复文件链接失败：{} -> {}，{}", duplicate, first, e.getMessage());
+            return false;
+        }
+        reclaimedBytes.addAndGet(bytes);
+        reclaimedByGroup.computeIfAbsent(action.getFirst(), k -> new AtomicLong(0)).addAndGet(bytes);
+        return true;
+    }
+
+    public interface ActionListener {
+        /**
+         * @return 返回false时跳过该动作
+         */
+        boolean before(DuplicateAction action);
+
+        void after(DuplicateAction action, boolean success);
+    }
+}
@@ -0,0 +1,64 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.alibaba.fastjson.JSON;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 处理计划：试运行时只记录将要执行的动作，每行一个JSON，确认后再由{@link ActionExecutor}执行。
+ * 计划文件可以手工编辑，删除不需要处理的行即可
+ */
+public class ActionPlan implements Closeable {
+    private final File file;
+    private final BufferedWriter writer;
+    private long count;
+
+    public ActionPlan(File file) throws IOException {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    public synchronized void add(DuplicateAction action) throws IOException {
+        writer.write(JSON.toJSONString(action));
+        writer.newLine();
+        count++;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * 读取计划文件，忽略空行
+     */
+    public static List<DuplicateAction> read(File file) throws IOException {
+        List<DuplicateAction> actions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (StringUtils.isNotBlank(line)) {
+                    actions.add(JSON.parseObject(line, DuplicateAction.class));
+                }
+            }
+        }
+        return actions;
+    }
+}
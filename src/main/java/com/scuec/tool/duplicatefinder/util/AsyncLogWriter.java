@@ -0,0 +1,284 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 异步的扫描日志：事件写入预分配的环形缓冲区，由单个写线程批量编码为JSON行并写入文件。
+ * <p>
+ * 可以被多个线程并发调用；缓冲区满时调用方阻塞等待(不丢弃日志)。
+ * 写线程每次取走缓冲区中的全部事件，逐个编码后写入，缓冲区取空后才刷新到磁盘，
+ * 事件密集时多条日志合并为一次写入。编码不经过Map和JSON库，时间字符串按秒缓存。
+ */
+public class AsyncLogWriter implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogWriter.class);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Event[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private final Writer writer;
+    private final Thread thread;
+    private final StringBuilder line = new StringBuilder(512);
+    private final ZoneId zone = ZoneId.systemDefault();
+    private long head;
+    private long tail;
+    private long flushed;
+    private long flushRequest;
+    private boolean closed;
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTime;
+
+    public AsyncLogWriter(File file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param file     日志文件，已存在时追加
+     * @param capacity 环形缓冲区可容纳的事件数
+     */
+    public AsyncLogWriter(File file, int capacity) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8),
+                WRITE_BUFFER_SIZE);
+        this.ring = new Event[Math.max(capacity, 1)];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Event();
+        }
+        this.thread = new Thread(this::drain, "duplicate-finder-log-" + file.getName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 记录一条日志，缓冲区满时阻塞
+     *
+     * @return 是否已进入缓冲区，关闭后返回false
+     */
+    public boolean log(String type, String label, String first, String duplicate, String other) {
+        long time = System.currentTimeMillis();
+        lock.lock();
+        try {
+            while (!closed && tail - head == ring.length) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                return false;
+            }
+            ring[(int) (tail % ring.length)].set(time, type, label, first, duplicate, other);
+            if (tail++ == head) {
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 阻塞直到调用前记录的日志全部写入并刷新到磁盘
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = tail;
+            flushRequest = Math.max(flushRequest, target);
+            while (flushed < target && thread.isAlive()) {
+                drained.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写完剩余日志后关闭文件
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                long from;
+                long to;
+                lock.lock();
+                try {
+                    while (head == tail && !closed) {
+                        notEmpty.await(1, TimeUnit.SECONDS);
+                    }
+                    if (head == tail) {
+                        break;
+                    }
+                    from = head;
+                    to = tail;
+                } finally {
+                    lock.unlock();
+                }
+                // head之前的槽位不会被生产者覆盖，可以在锁外编码
+                for (long i = from; i < to; i++) {
+                    write(ring[(int) (i % ring.length)]);
+                }
+                boolean flush;
+                lock.lock();
+                try {
+                    head = to;
+                    notFull.signalAll();
+                    // 缓冲区取空或有调用方在等待刷新时才刷新
+                    flush = head == tail || flushRequest > flushed;
+                } finally {
+                    lock.unlock();
+                }
+                if (flush) {
+                    writer.flush();
+                    markFlushed(to);
+                }
+            }
+            writer.flush();
+        } catch (IOException | InterruptedException e) {
+            LOGGER.warn("扫描日志写入异常", e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.warn("扫描日志关闭异常", e);
+            }
+            lock.lock();
+            try {
+                closed = true;
+                flushed = tail;
+                notFull.signalAll();
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void markFlushed(long position) {
+        lock.lock();
+        try {
+            flushed = position;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Event event) throws IOException {
+        line.setLength(0);
+        line.append("{\"time\":\"").append(format(event.time)).append('"');
+        field("type", event.type);
+        field("label", event.label);
+        field("first", event.first);
+        field("duplicate", event.duplicate);
+        field("other", event.other);
+        line.append("}\n");
+        writer.append(line);
+        event.clear();
+    }
+
+    /**
+     * 与fastjson默认行为一致，值为null的字段不输出
+     */
+    private void field(String name, String value) {
+        if (null == value) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private String format(long time) {
+        long second = Math.floorDiv(time, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTime = TIME_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone));
+        }
+        return cachedTime;
+    }
+
+    private static final class Event {
+        private long time;
+        private String type;
+        private String label;
+        private String first;
+        private String duplicate;
+        private String other;
+
+        private void set(long time, String type, String label, String first, String duplicate, String other) {
+            this.time = time;
+            this.type = type;
+            this.label = label;
+            this.first = first;
+            this.duplicate = duplicate;
+            this.other = other;
+        }
+
+        private void clear() {
+            set(0, null, null, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.hash.ContentHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 基于{@link FileChannel}的文件读取，用于摘要计算和内容比对。
+ * 每个线程复用两块直接内存缓冲区，避免堆内数组拷贝和频繁GC；
+ * 不小于映射阈值的文件按窗口进行内存映射，映射失败时自动回退为普通读取。
+ * <p>
+ * 调用{@link #cancel()}后，正在进行的读取在下一块之前抛出{@link CancellationException}，
+ * 不会把大文件读完才结束。
+ */
+public class ChannelIO {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelIO.class);
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    private static final int LOCKSTEP_BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_LOCKSTEP_FILES = 256;
+    private final long mapThreshold;
+    private volatile boolean cancelled;
+    private final ThreadLocal<List<ByteBuffer>> lockstepBuffers = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<ByteBuffer[]> buffers = ThreadLocal.withInitial(() ->
+            new ByteBuffer[]{ByteBuffer.allocateDirect(BUFFER_SIZE), ByteBuffer.allocateDirect(BUFFER_SIZE)});
+
+    /**
+     * @param mapThreshold 内存映射阈值(字节)，小于等于0时不使用内存映射
+     */
+    public ChannelIO(long mapThreshold) {
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * 取消全部正在进行及之后的读取
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("读取已取消");
+        }
+    }
+
+    /**
+     * 计算一个文件的全量摘要
+     *
+     * @param file
+     * @param hasher 摘要实例，计算前会被重置
+     * @return 64位摘要值
+     * @throws IOException
+     */
+    public long hash(Path file, ContentHasher hasher) throws IOException {
+        hasher.reset();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!hashMapped(channel, size, hasher)) {
+                hasher.reset();
+                updateRange(channel, 0, Long.MAX_VALUE, hasher);
+            }
+        }
+        return hasher.getValue();
+    }
+
+    /**
+     * 计算一个文件的部分摘要，仅读取首尾两块及中间均匀采样的若干块，
+     * 文件不超过读取范围时等同于全量摘要
+     *
+     * @param file
+     * @param hasher      摘要实例，计算前会被重置
+     * @param blockSize   每块读取的字节数
+     * @param sampleCount 首尾块之间的采样块数
+     * @return 64位摘要值
+     * @throws IOException
+     */
+    public long partialHash(Path file, ContentHasher hasher, int blockSize, int sampleCount) throws IOException {
+        hasher.reset();
+        blockSize = Math.max(blockSize, 1);
+        sampleCount = Math.max(sampleCount, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= (long) blockSize * (sampleCount + 2)) {
+                updateRange(channel, 0, Long.MAX_VALUE, hasher);
+            } else {
+                long step = (size - blockSize) / (sampleCount + 1);
+                for (int i = 0; i <= sampleCount; i++) {
+                    updateRange(channel, step * i, blockSize, hasher);
+                }
+                updateRange(channel, size - blockSize, blockSize, hasher);
+            }
+        }
+        return hasher.getValue();
+    }
+
+    /**
+     * 逐字节比较两个文件内容是否相同
+     */
+    public boolean contentEquals(Path file1, Path file2) throws IOException {
+        try (FileChannel channel1 = FileChannel.open(file1, StandardOpenOption.READ);
+             FileChannel channel2 = FileChannel.open(file2, StandardOpenOption.READ)) {
+            long size = channel1.size();
+            if (size != channel2.size()) {
+                return false;
+            }
+            Boolean mapped = equalsMapped(channel1, channel2, size);
+            if (null != mapped) {
+                return mapped;
+            }
+
+            ByteBuffer[] pair = buffers.get();
+            ByteBuffer buffer1 = pair[0];
+            ByteBuffer buffer2 = pair[1];
+            long position = 0;
+            while (true) {
+                checkCancelled();
+                buffer1.clear();
+                buffer2.clear();
+                int read1 = fill(channel1, buffer1, position);
+                int read2 = fill(channel2, buffer2, position);
+                if (read1 != read2) {
+                    return false;
+                }
+                if (read1 == 0) {
+                    return true;
+                }
+                buffer1.flip();
+                buffer2.flip();
+                if (!buffer1.equals(buffer2)) {
+                    return false;
+                }
+                position += read1;
+            }
+        }
+    }
+
+    /**
+     * 将大小相同的一组文件按内容划分为等价类：所有文件同步按块读取，
+     * 每读一块就按块内容拆分，内容出现差异的文件立即分离，只剩自己的文件不再继续读取。
+     * 文件数超出同时打开的上限时分批进行，后续每批带上已有等价类(包括只有一个文件的)的首个文件一起读取，
+     * 除这些首个文件在每批中重读一次外，每个文件最多只读取一次。
+     *
+     * @param files 大小相同的文件
+     * @return 内容完全相同的文件分组，只返回包含两个及以上文件的分组，组内保持原有顺序
+     */
+    public List<List<Path>> partition(List<Path> files) {
+        List<List<Path>> classes = new ArrayList<>();
+        int next = 0;
+        while (next < files.size()) {
+            checkCancelled();
+            int room = MAX_LOCKSTEP_FILES - classes.size();
+            if (room <= 0) {
+                // 内容各不相同的文件已达到上限，剩余文件逐一与各等价类比较
+                for (Path file : files.subList(next, files.size())) {
+                    checkCancelled();
+                    addToGroup(classes, file);
+                }
+                break;
+            }
+            int end = Math.min(files.size(), next + room);
+            List<Path> batch = new ArrayList<>(classes.size() + end - next);
+            for (List<Path> members : classes) {
+                batch.add(members.get(0));
+            }
+            batch.addAll(files.subList(next, end));
+            classes = merge(classes, lockstep(batch));
+            next = end;
+        }
+        List<List<Path>> result = new ArrayList<>();
+        for (List<Path> members : classes) {
+            if (members.size() > 1) {
+                result.add(members);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把一批文件的等价类并入已有等价类：包含已有等价类首个文件的新等价类并入该等价类，其余作为新的等价类。
+     * 本批中打开或读取失败的首个文件所在的等价类保持不变
+     */
+    private static List<List<Path>> merge(List<List<Path>> classes, List<List<Path>> batchClasses) {
+        Map<Path, List<Path>> byHead = new IdentityHashMap<>();
+        for (List<Path> members : classes) {
+            byHead.put(members.get(0), members);
+        }
+        List<List<Path>> merged = new ArrayList<>();
+        for (List<Path> members : batchClasses) {
+            List<Path> target = null;
+            for (Path file : members) {
+                List<Path> existing = byHead.remove(file);
+                if (null != existing) {
+                    target = existing;
+                    break;
+                }
+            }
+            if (null == target) {
+                target = new ArrayList<>();
+            }
+            for (Path file : members) {
+                if (target.isEmpty() || file != target.get(0)) {
+                    target.add(file);
+                }
+            }
+            merged.add(target);
+        }
+        merged.addAll(byHead.values());
+        return merged;
+    }
+
+    /**
+     * 同步读取不超过同时打开上限的一批文件，返回全部等价类，包括只有一个文件的，打开或读取失败的文件不在其中
+     */
+    private List<List<Path>> lockstep(List<Path> files) {
+        FileChannel[] channels = new FileChannel[files.size()];
+        try {
+            List<List<Integer>> classes = new ArrayList<>();
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < channels.length; i++) {
+                try {
+                    channels[i] = FileChannel.open(files.get(i), StandardOpenOption.READ);
+                    all.add(i);
+                } catch (IOException e) {
+                    LOGGER.warn("文件打开异常，file: {}", files.get(i), e);
+                }
+            }
+            List<List<Integer>> finished = new ArrayList<>();
+            if (all.size() > 1) {
+                classes.add(all);
+            } else if (all.size() == 1) {
+                finished.add(all);
+            }
+            ByteBuffer[] buffers = lockstepBuffers(channels.length);
+            long position = 0;
+            while (!classes.isEmpty()) {
+                checkCancelled();
+                List<List<Integer>> next = new ArrayList<>();
+                int maxRead = 0;
+                for (List<Integer> members : classes) {
+                    for (List<Integer> split : split(members, channels, buffers, position, files)) {
+                        int read = buffers[split.get(0)].limit();
+                        if (split.size() < 2 || read == 0) {
+                            finished.add(split);
+                        } else {
+                            next.add(split);
+                            maxRead = Math.max(maxRead, read);
+                        }
+                    }
+                }
+                classes = next;
+                position += maxRead;
+            }
+            List<List<Path>> result = new ArrayList<>();
+            for (List<Integer> members : finished) {
+                List<Path> group = new ArrayList<>();
+                for (Integer index : members) {
+                    group.add(files.get(index));
+                }
+                result.add(group);
+            }
+            return result;
+        } finally {
+            for (FileChannel channel : channels) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    /**
+     * 读取分组内每个文件的下一块，并按块内容拆分为子分组
+     */
+    private List<List<Integer>> split(List<Integer> members, FileChannel[] channels, ByteBuffer[] buffers,
+                                      long position, List<Path> files) {
+        List<List<Integer>> splits = new ArrayList<>();
+        for (Integer index : members) {
+            ByteBuffer buffer = buffers[index];
+            buffer.clear();
+            try {
+                fill(channels[index], buffer, position);
+            } catch (IOException e) {
+                LOGGER.warn("文件读取异常，file: {}", files.get(index), e);
+                continue;
+            }
+            buffer.flip();
+            List<Integer> target = null;
+            for (List<Integer> split : splits) {
+                if (buffers[split.get(0)].equals(buffer)) {
+                    target = split;
+                    break;
+                }
+            }
+            if (null == target) {
+                target = new ArrayList<>();
+                splits.add(target);
+            }
+            target.add(index);
+        }
+        return splits;
+    }
+
+    private void addToGroup(List<List<Path>> groups, Path file) {
+        for (List<Path> group : groups) {
+            try {
+                if (contentEquals(group.get(0), file)) {
+                    group.add(file);
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("文件比较异常，file1: {}, file2: {}", group.get(0), file, e);
+                return;
+            }
+        }
+        groups.add(new ArrayList<>(Collections.singletonList(file)));
+    }
+
+    private ByteBuffer[] lockstepBuffers(int count) {
+        List<ByteBuffer> pool = lockstepBuffers.get();
+        while (pool.size() < count) {
+            pool.add(ByteBuffer.allocateDirect(LOCKSTEP_BLOCK_SIZE));
+        }
+        return pool.subList(0, count).toArray(new ByteBuffer[0]);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (null != channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.debug("文件关闭异常", e);
+            }
+        }
+    }
+
+    private boolean hashMapped(FileChannel channel, long size, ContentHasher hasher) {
+        if (!isMappable(size)) {
+            return false;
+        }
+        try {
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+                // 按普通读取的块大小分段，每段之前检查是否已取消
+                for (int offset = 0; offset < window.capacity(); offset += BUFFER_SIZE) {
+                    checkCancelled();
+                    // MappedByteBuffer的协变重写方法JDK 13才加入，经Buffer调用以便在9~12上运行
+                    ((Buffer) window).limit(Math.min(window.capacity(), offset + BUFFER_SIZE)).position(offset);
+                    hasher.update(window);
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException | InternalError e) {
+            // 部分文件系统不支持映射，或映射期间文件被截断，回退为普通读取
+            LOGGER.debug("文件映射失败，回退为普通读取", e);
+            return false;
+        }
+    }
+
+    /**
+     * @return 映射比较结果，无法映射时返回null
+     */
+    private Boolean equalsMapped(FileChannel channel1, FileChannel channel2, long size) {
+        if (!isMappable(size)) {
+            return null;
+        }
+        try {
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                long length = Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer window1 = channel1.map(FileChannel.MapMode.READ_ONLY, position, length);
+                MappedByteBuffer window2 = channel2.map(FileChannel.MapMode.READ_ONLY, position, length);
+                for (int offset = 0; offset < length; offset += BUFFER_SIZE) {
+                    checkCancelled();
+                    int end = (int) Math.min(length, offset + BUFFER_SIZE);
+                    ((Buffer) window1).limit(end).position(offset);
+                    ((Buffer) window2).limit(end).position(offset);
+                    if (!window1.equals(window2)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException | InternalError e) {
+            LOGGER.debug("文件映射失败，回退为普通读取", e);
+            return null;
+        }
+    }
+
+    private boolean isMappable(long size) {
+        return mapThreshold > 0 && size >= mapThreshold;
+    }
+
+    private void updateRange(FileChannel channel, long position, long length, ContentHasher hasher) throws IOException {
+        ByteBuffer buffer = buffers.get()[0];
+        while (length > 0) {
+            checkCancelled();
+            buffer.clear();
+            if (length < buffer.capacity()) {
+                buffer.limit((int) length);
+            }
+            int read = fill(channel, buffer, position);
+            if (read == 0) {
+                break;
+            }
+            buffer.flip();
+            hasher.update(buffer);
+            position += read;
+            length -= read;
+        }
+    }
+
+    /**
+     * 从指定位置读满缓冲区或读到文件末尾
+     *
+     * @return 读取的字节数，文件末尾返回0
+     */
+    private static int fill(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
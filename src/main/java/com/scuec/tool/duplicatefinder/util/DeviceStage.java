@@ -0,0 +1,166 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * 按设备调度的读取阶段：每个文件按遍历时解析的设备编号({@link DeviceTable})划分到对应设备的队列，
+ * 每个设备只有固定数量的读取线程，设备内按路径顺序读取，减少机械硬盘的寻道抖动；
+ * 不同设备之间相互独立、并行读取。设备的读取线程在首次遇到该设备时创建。
+ *
+ * @param <T> 阶段处理的数据类型
+ */
+public class DeviceStage<T> implements Stage<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceStage.class);
+    private final String name;
+    private final IntUnaryOperator readers;
+    private final Function<T, Path> pathOf;
+    private final ToIntFunction<T> deviceOf;
+    private final Consumer<T> handler;
+    private final PipelineStage.Tracker tracker;
+    private final Semaphore slots;
+    private final Map<Integer, Lane> lanes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param name             阶段名称，用于线程命名
+     * @param readers          按设备编号计算该设备的读取线程数
+     * @param capacity         所有设备队列的总容量
+     * @param pathOf           获取数据对应的文件路径，设备内按路径顺序读取
+     * @param deviceOf         获取数据所在设备的编号
+     * @param handler          处理逻辑，只能向下游阶段提交数据
+     * @param tracker          整条流水线共用的未完成任务计数
+     */
+    public DeviceStage(String name, IntUnaryOperator readers, int capacity, Function<T, Path> pathOf,
+                       ToIntFunction<T> deviceOf, Consumer<T> handler, PipelineStage.Tracker tracker) {
+        this.name = name;
+        this.readers = readers;
+        this.slots = new Semaphore(Math.max(capacity, 1));
+        this.pathOf = pathOf;
+        this.deviceOf = deviceOf;
+        this.handler = handler;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public void put(T item) throws InterruptedException {
+        slots.acquire();
+        tracker.increment();
+        lane(deviceOf.applyAsInt(item)).queue.put(item);
+    }
+
+    @Override
+    public boolean offer(T item) {
+        if (!slots.tryAcquire()) {
+            return false;
+        }
+        tracker.increment();
+        lane(deviceOf.applyAsInt(item)).queue.put(item);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Lane lane : lanes.values()) {
+            size += lane.queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * 已发现的设备数量
+     */
+    public int getDeviceCount() {
+        return lanes.size();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        for (Lane lane : lanes.values()) {
+            lane.join();
+        }
+    }
+
+    /**
+     * 设备对应的读取队列，首次遇到时创建，读取线程在队列放入映射之后再启动
+     */
+    private Lane lane(int device) {
+        Lane lane = lanes.get(device);
+        if (null != lane) {
+            return lane;
+        }
+        Lane created = new Lane();
+        lane = lanes.putIfAbsent(device, created);
+        if (null != lane) {
+            return lane;
+        }
+        created.start(device);
+        return created;
+    }
+
+    /**
+     * 单个设备的读取队列，按路径排序，同一目录下的文件尽量连续读取
+     */
+    private class Lane {
+        private final PriorityBlockingQueue<T> queue =
+                new PriorityBlockingQueue<>(64, Comparator.comparing(pathOf));
+        private final List<Thread> workers = new ArrayList<>();
+
+        private synchronized void start(int device) {
+            int count = Math.max(readers.applyAsInt(device), 1);
+            for (int i = 0; i < count; i++) {
+                Thread worker = new Thread(this::work, "duplicate-finder-" + name + "-dev" + device + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        private synchronized void join() throws InterruptedException {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        private void work() {
+            while (!closed || !queue.isEmpty()) {
+                T item;
+                try {
+                    item = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (null == item) {
+                    continue;
+                }
+                slots.release();
+                try {
+                    handler.accept(item);
+                } catch (CancellationException e) {
+                    LOGGER.debug("{} 阶段处理已取消", name);
+                } catch (Throwable t) {
+                    LOGGER.warn("{} 阶段处理异常", name, t);
+                } finally {
+                    tracker.decrement();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次扫描内的设备编号表：遍历时每个目录解析一次所在设备(unix:dev，非unix文件系统按盘符)，
+ * 同一设备的目录得到相同的编号，供{@link DeviceStage}按设备划分读取队列。表只按设备增长，扫描结束后清空。
+ * <p>
+ * Linux下按/sys/dev/block/主:次设备号/queue/rotational判断是否机械硬盘(分区取所在磁盘的值)，
+ * 其他系统或无法判断的设备(网络文件系统、tmpfs等)视为非机械硬盘。
+ */
+public class DeviceTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceTable.class);
+    /**
+     * 未解析或解析失败的设备
+     */
+    public static final int UNKNOWN = 0;
+    private static final boolean UNIX = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    private final Map<Object, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, Object> devices = new ConcurrentHashMap<>();
+    private final Map<Integer, Boolean> rotational = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger(UNKNOWN);
+
+    /**
+     * 解析目录所在设备的编号，编号从1开始
+     */
+    public int resolve(Path dir) {
+        Object device = deviceOf(dir);
+        if (null == device) {
+            return UNKNOWN;
+        }
+        Integer id = ids.get(device);
+        if (null != id) {
+            return id;
+        }
+        id = ids.computeIfAbsent(device, key -> sequence.incrementAndGet());
+        devices.putIfAbsent(id, device);
+        return id;
+    }
+
+    /**
+     * 设备是否为机械硬盘，每个设备只读取一次sysfs
+     */
+    public boolean isRotational(int id) {
+        Boolean value = rotational.get(id);
+        if (null == value) {
+            Object device = devices.get(id);
+            value = device instanceof Long && isRotational((Long) device);
+            rotational.putIfAbsent(id, value);
+        }
+        return value;
+    }
+
+    /**
+     * 已发现的设备数量
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    public void clear() {
+        ids.clear();
+        devices.clear();
+        rotational.clear();
+    }
+
+    /**
+     * 按glibc的dev_t编码拆分主次设备号，分区目录下没有queue，取上一级磁盘的值
+     */
+    private static boolean isRotational(long dev) {
+        long major = ((dev >>> 8) & 0xfffL) | ((dev >>> 32) & 0xfffff000L);
+        long minor = (dev & 0xffL) | ((dev >>> 12) & 0xffffff00L);
+        Path block = Paths.get("/sys/dev/block", major + ":" + minor);
+        for (Path file : new Path[]{block.resolve("queue/rotational"), block.resolve("../queue/rotational")}) {
+            try {
+                return "1".equals(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("读取设备类型失败：{}", file);
+            }
+        }
+        return false;
+    }
+
+    private static Object deviceOf(Path dir) {
+        if (!UNIX) {
+            return dir.toAbsolutePath().getRoot();
+        }
+        try {
+            return Files.getAttribute(dir, "unix:dev");
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            LOGGER.debug("获取目录所在设备失败：{}", dir, e);
+            return null;
+        }
+    }
+}
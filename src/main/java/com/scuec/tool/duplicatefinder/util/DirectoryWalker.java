@@ -0,0 +1,272 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.WalkModeEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * 基于{@link ForkJoinPool}工作窃取的并行目录遍历，每个子目录作为独立任务拆分，
+ * 并行度随目录扇出扩展，而不是受限于扫描根目录的个数。
+ * <p>
+ * 目录项通过{@link DirectoryStream}读取，每个目录项只读取一次{@link BasicFileAttributes}，
+ * 以{@link FileEntry}的形式交给后续流程。无法读取的目录记录日志后跳过；
+ * 默认不跟随符号链接，跟随时按文件标识对目录去重，避免目录循环。
+ * 普通文件在两种模式下都不按文件标识去重：同一文件的多个路径(硬链接，跟随时还包括指向文件的符号链接)都会交给回调，
+ * 由内容比对阶段合并为同一文件，不视为重复文件。
+ * <p>
+ * {@link WalkModeEnum#VIRTUAL}模式下每个目录由一个虚拟线程读取，同时进行的目录读取数由信号量限制，
+ * 适合元数据调用延迟高的网络文件系统；运行时不支持虚拟线程时退回ForkJoinPool。
+ */
+public class DirectoryWalker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryWalker.class);
+    private final ForkJoinPool pool;
+    private final ExecutorService virtualExecutor;
+    private final Semaphore permits;
+    private final boolean followLinks;
+    private final Set<Object> visited = ConcurrentHashMap.newKeySet();
+    private volatile DeviceTable devices;
+
+    /**
+     * @param parallelism 并行度，小于等于0时使用CPU核数
+     * @param followLinks 是否跟随符号链接
+     */
+    public DirectoryWalker(int parallelism, boolean followLinks) {
+        this(WalkModeEnum.PLATFORM, parallelism, 0, followLinks);
+    }
+
+    /**
+     * @param mode        线程模式
+     * @param parallelism 平台线程模式的并行度，小于等于0时使用CPU核数
+     * @param concurrency 虚拟线程模式同时进行的目录读取数上限，小于等于0时不限制
+     * @param followLinks 是否跟随符号链接
+     */
+    public DirectoryWalker(WalkModeEnum mode, int parallelism, int concurrency, boolean followLinks) {
+        ExecutorService executor = null;
+        if (WalkModeEnum.VIRTUAL == mode) {
+            executor = VirtualThreads.newExecutor("duplicate-finder-walk-");
+            if (null == executor) {
+                LOGGER.warn("当前运行时不支持虚拟线程，目录遍历使用平台线程，java.version: {}", System.getProperty("java.version"));
+            }
+        }
+        this.virtualExecutor = executor;
+        this.pool = null == executor ? new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()) : null;
+        this.permits = new Semaphore(concurrency > 0 ? concurrency : Integer.MAX_VALUE);
+        this.followLinks = followLinks;
+    }
+
+    public boolean isVirtual() {
+        return null != virtualExecutor;
+    }
+
+    /**
+     * 遍历目录下的全部普通文件，阻塞直到遍历完成
+     *
+     * @param roots   根目录
+     * @param visitor 文件回调，会被多个线程并发调用
+     * @param stopped 停止标识，返回true时不再继续遍历
+     */
+    public void walk(List<String> roots, Consumer<FileEntry> visitor, BooleanSupplier stopped) {
+        walk(roots, visitor, stopped, null);
+    }
+
+    /**
+     * 遍历目录下的全部普通文件，每个包含文件的目录解析一次所在设备，阻塞直到遍历完成
+     *
+     * @param devices 设备编号表，为null时不解析文件所在设备
+     */
+    public void walk(List<String> roots, Consumer<FileEntry> visitor, BooleanSupplier stopped, DeviceTable devices) {
+        this.devices = devices;
+        visited.clear();
+        List<Path> dirs = new ArrayList<>();
+        for (String root : roots) {
+            Path path = Paths.get(root);
+            BasicFileAttributes attributes = readAttributes(path);
+            if (null != attributes && attributes.isDirectory() && enter(path, attributes)) {
+                dirs.add(path);
+            }
+        }
+        if (isVirtual()) {
+            new VirtualWalk(visitor, stopped).walk(dirs);
+            return;
+        }
+        List<WalkTask> tasks = new ArrayList<>();
+        for (Path dir : dirs) {
+            tasks.add(new WalkTask(dir, visitor, stopped));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    public void shutdown() {
+        if (isVirtual()) {
+            virtualExecutor.shutdown();
+        } else {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 读取一个目录，普通文件交给回调
+     *
+     * @return 需要继续遍历的子目录
+     */
+    private List<Path> list(Path dir, Consumer<FileEntry> visitor, BooleanSupplier stopped) {
+        List<Path> subDirs = new ArrayList<>();
+        int device = -1;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (stopped.getAsBoolean()) {
+                    return subDirs;
+                }
+                BasicFileAttributes attributes = readAttributes(path);
+                if (null == attributes) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    if (enter(path, attributes)) {
+                        subDirs.add(path);
+                    }
+                } else if (attributes.isRegularFile()) {
+                    if (device < 0) {
+                        device = null == devices ? DeviceTable.UNKNOWN : devices.resolve(dir);
+                    }
+                    visitor.accept(FileEntry.of(path, attributes, device));
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            LOGGER.warn("目录读取异常，已跳过：{}", dir, e);
+        }
+        return subDirs;
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            if (followLinks) {
+                return Files.readAttributes(path, BasicFileAttributes.class);
+            }
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            // 跟随链接时失效的符号链接会读取失败
+            LOGGER.debug("文件属性读取异常，已跳过：{}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 跟随符号链接时，同一目录只访问一次
+     */
+    private boolean enter(Path path, BasicFileAttributes attributes) {
+        if (!followLinks) {
+            return true;
+        }
+        Object key = attributes.fileKey();
+        if (null == key) {
+            try {
+                key = path.toRealPath().toString();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return visited.add(key);
+    }
+
+    private class WalkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Path dir;
+        private final Consumer<FileEntry> visitor;
+        private final BooleanSupplier stopped;
+
+        private WalkTask(Path dir, Consumer<FileEntry> visitor, BooleanSupplier stopped) {
+            this.dir = dir;
+            this.visitor = visitor;
+            this.stopped = stopped;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subTasks = new ArrayList<>();
+            for (Path subDir : list(dir, visitor, stopped)) {
+                subTasks.add(new WalkTask(subDir, visitor, stopped));
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    /**
+     * 虚拟线程遍历：每个目录提交一个任务，未完成的目录数归零时遍历结束
+     */
+    private class VirtualWalk {
+        private final Consumer<FileEntry> visitor;
+        private final BooleanSupplier stopped;
+        private final AtomicLong pending = new AtomicLong(0);
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private VirtualWalk(Consumer<FileEntry> visitor, BooleanSupplier stopped) {
+            this.visitor = visitor;
+            this.stopped = stopped;
+        }
+
+        private void walk(List<Path> dirs) {
+            if (dirs.isEmpty()) {
+                return;
+            }
+            pending.addAndGet(dirs.size());
+            dirs.forEach(this::submit);
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void submit(Path dir) {
+            virtualExecutor.execute(() -> {
+                try {
+                    if (stopped.getAsBoolean()) {
+                        return;
+                    }
+                    List<Path> subDirs;
+                    permits.acquire();
+                    try {
+                        subDirs = list(dir, visitor, stopped);
+                    } finally {
+                        permits.release();
+                    }
+                    pending.addAndGet(subDirs.size());
+                    subDirs.forEach(this::submit);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+    }
+}
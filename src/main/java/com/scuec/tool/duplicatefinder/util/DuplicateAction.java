@@ -0,0 +1,68 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
+
+/**
+ * 对一个重复文件的处理动作，也是处理计划文件中的一行
+ */
+public class DuplicateAction {
+    private ProcessTypeEnum type;
+    private String first;
+    private String duplicate;
+    /**
+     * 移动时的目标目录
+     */
+    private String target;
+
+    public DuplicateAction() {
+    }
+
+    public DuplicateAction(ProcessTypeEnum type, String first, String duplicate, String target) {
+        this.type = type;
+        this.first = first;
+        this.duplicate = duplicate;
+        this.target = target;
+    }
+
+    public ProcessTypeEnum getType() {
+        return type;
+    }
+
+    public void setType(ProcessTypeEnum type) {
+        this.type = type;
+    }
+
+    public String getFirst() {
+        return first;
+    }
+
+    public void setFirst(String first) {
+        this.first = first;
+    }
+
+    public String getDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(String duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateAction{" +
+                "type=" + type +
+                ", first='" + first + '\'' +
+                ", duplicate='" + duplicate + '\'' +
+                ", target='" + target + '\'' +
+                '}';
+    }
+}
@@ -1,37 +1,132 @@
 package com.scuec.tool.duplicatefinder.util;
 
+import com.scuec.tool.duplicatefinder.config.Config;
+import com.scuec.tool.duplicatefinder.config.ConfigUtils;
+import com.scuec.tool.duplicatefinder.enums.ScanStageEnum;
+import com.scuec.tool.duplicatefinder.hash.ContentHasher;
+import com.scuec.tool.duplicatefinder.hash.ContentHashers;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-
-public class DuplicateFinder {
-    private static final ExecutorService executor = Executors.newFixedThreadPool(20);
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 重复文件扫描。每次扫描的线程(扫描线程、遍历线程及各阶段线程)均在扫描开始时创建、结束时退出，
+ * 不同实例之间不共享线程池；{@link #close()}停止正在进行的扫描并等待其全部线程退出。
+ */
+public class DuplicateFinder implements AutoCloseable {
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private volatile boolean stopRequested;
+    private volatile ScanHandle current;
 
     public interface ScanListener {
+        /**
+         * 逐个通知重复文件，由{@link GroupListener#of(ScanListener)}从分组批量通知转换而来；
+         * 同时实现{@link GroupListener}的监听器只接收分组通知，不再调用此方法
+         */
         void duplicate(String first, String duplicate);
 
+        /**
+         * 已处理的文件数，扫描期间经{@link #progress(long, long, long)}合并后通知
+         */
         void process(long count);
 
         void finish(long count);
 
         void totalCount(long count);
+
+        /**
+         * 流水线阶段完成通知
+         *
+         * @param stage       阶段
+         * @param inputCount  进入该阶段的文件数
+         * @param outputCount 该阶段输出到下一阶段的文件数
+         * @param savedBytes  该阶段剔除的文件总大小，即后续阶段无需再读取的字节数
+         */
+        default void stage(ScanStageEnum stage, long inputCount, long outputCount, long savedBytes) {
+        }
+
+        /**
+         * 合并后的扫描进度，由进度线程按{@link Config#getProgressInterval()}的间隔串行调用，
+         * 阶段完成及扫描结束前会先通知一次最新进度。默认转发给totalCount和process
+         *
+         * @param processed 已处理的文件数
+         * @param total     待扫描文件总数
+         * @param delta     距上次通知新增的已处理文件数
+         */
+        default void progress(long processed, long total, long delta) {
+            totalCount(total);
+            process(processed);
+        }
+    }
+
+    /**
+     * 重复文件分组批量通知，由结果通知阶段的单个线程串行调用，不阻塞比对线程。
+     * 同一批内的分组按比对完成的先后排列，批次列表只读且调用结束后仍可保留
+     */
+    @FunctionalInterface
+    public interface GroupListener {
+        void groups(List<DuplicateGroup> groups);
+
+        /**
+         * 将逐个通知重复文件的监听器转换为分组监听器，路径字符串在通知线程中生成
+         */
+        static GroupListener of(ScanListener listener) {
+            return groups -> {
+                for (DuplicateGroup group : groups) {
+                    String first = group.getRetained().getAbsolutePath();
+                    for (FileEntry duplicate : group.getDuplicates()) {
+                        listener.duplicate(first, duplicate.getAbsolutePath());
+                    }
+                }
+            };
+        }
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DuplicateFinder.class);
-    private static final String UNDER_LINE = "_";
+    private static final String HASH_CACHE_NAME = "hash.cache";
+    private static final int TOTAL_COUNT_STEP = 1000;
     private final List<ScanListener> listeners = new ArrayList<>();
-    private final Map<String, List<File>> fileMap = new ConcurrentHashMap<>();
+    private final List<GroupListener> groupListeners = new ArrayList<>();
+    private final FileIndex fileIndex = new FileIndex();
+    private final FileGroups sizeGroups = new FileGroups(fileIndex, false);
+    private final FileGroups partialGroups = new FileGroups(fileIndex, false);
+    private final FileGroups hashGroups = new FileGroups(fileIndex, true);
     private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong sizeReleased = new AtomicLong(0);
+    private final AtomicLong partialReleased = new AtomicLong(0);
+    private final AtomicLong duplicateCount = new AtomicLong(0);
+    private final AtomicLong groupSequence = new AtomicLong(0);
+    private final ScanMetrics metrics = new ScanMetrics();
     private final List<String> filterSuffixes = new ArrayList<>();
+    private Config config = new Config();
+    private Executor executor;
+    private ThreadLocal<ContentHasher> hashers;
+    private ChannelIO channelIO;
+    private HashCache hashCache;
+    private ExternalSorter sizeSorter;
+    private ExternalSorter partialSorter;
+    private ExternalSorter hashSorter;
+    private PipelineStage.Tracker tracker;
+    private ProgressCoalescer progress;
+    private DeviceTable deviceTable;
+    private Stage<FileEntry> partialStage;
+    private Stage<FileEntry> hashStage;
+    private Stage<List<FileEntry>> verifyStage;
+    private Stage<DuplicateGroup> sinkStage;
+    private List<DuplicateGroup> pendingGroups = new ArrayList<>();
 
     public static DuplicateFinder create() {
         return new DuplicateFinder();
@@ -49,22 +144,46 @@ public class DuplicateFinder {
     }
 
     public DuplicateFinder(ScanListener listener) {
-        if (null != listener) {
-            this.listeners.add(listener);
-        }
+        addListener(listener);
     }
 
     public DuplicateFinder(List<ScanListener> listeners) {
-        this.listeners.addAll(listeners);
+        listeners.forEach(this::addListener);
     }
 
+    /**
+     * 添加监听器，监听器同时实现{@link GroupListener}时直接接收分组通知，否则逐个通知重复文件
+     */
     public DuplicateFinder addListener(ScanListener listener) {
         if (null != listener) {
             this.listeners.add(listener);
+            this.groupListeners.add(listener instanceof GroupListener ? (GroupListener) listener : GroupListener.of(listener));
+        }
+        return this;
+    }
+
+    public DuplicateFinder addGroupListener(GroupListener listener) {
+        if (null != listener) {
+            this.groupListeners.add(listener);
         }
         return this;
     }
 
+    public DuplicateFinder config(Config config) {
+        if (null != config) {
+            this.config = config;
+        }
+        return this;
+    }
+
+    /**
+     * 指定运行扫描线程的执行器，由调用方负责关闭；未指定时每次扫描新建一个线程
+     */
+    public DuplicateFinder executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
     public long count(String dir, String... suffixes) {
         return count(dir, Arrays.asList(suffixes));
     }
@@ -78,38 +197,28 @@ public class DuplicateFinder {
     }
 
     public long count(List<String> dirs, List<String> suffixes) {
-        suffixes = Utils.clear(suffixes);
-
-        long count = 0;
-        for (String dir : dirs) {
-            File file = new File(dir);
-            if (file.isDirectory()) {
-                count += count(file, suffixes);
-            }
-        }
-
-        notifyTotalCount(count);
+        long count = walkCount(dirs, Utils.clear(suffixes));
+        dispatchTotalCount(count);
         return count;
     }
 
     public long count(File dir, List<String> suffixes) {
-        File[] files = dir.listFiles();
-        if (null == files) {
-            return 0;
-        }
-        long count = 0;
-        for (File file : files) {
-            if (file.isDirectory()) {
-                count += count(file, suffixes);
-            } else {
-                String suffix = Utils.getFileSuffix(file.getName());
-                if (CollectionUtils.isNotEmpty(suffixes) && !suffixes.contains(suffix)) {
-                    continue;
+        return walkCount(Collections.singletonList(dir.getPath()), suffixes);
+    }
+
+    private long walkCount(List<String> dirs, List<String> suffixes) {
+        LongAdder count = new LongAdder();
+        DirectoryWalker walker = newWalker();
+        try {
+            walker.walk(dirs, entry -> {
+                if (!isFilter(suffixes, entry.getSuffix())) {
+                    count.increment();
                 }
-                count++;
-            }
+            }, () -> false);
+        } finally {
+            walker.shutdown();
         }
-        return count;
+        return count.sum();
     }
 
     public void scan(boolean async, String dir) {
@@ -139,66 +248,529 @@ public class DuplicateFinder {
     public void syncScan(List<String> dirs, List<String> suffixes) {
         if (isRunning.compareAndSet(false, true)) {
             initContext(suffixes);
+            ScanHandle handle = new ScanHandle(new CompletableFuture<>(), this::stop);
+            current = handle;
+            runScan(dirs, handle);
+        }
+    }
 
-            CountDownLatch cdl = new CountDownLatch(dirs.size());
-            for (String dir : dirs) {
-                executor.submit(() -> {
-                    try {
-                        scan(new File(dir));
-                    } finally {
-                        cdl.countDown();
-                    }
-                });
+    public void scan(List<String> dirs, List<String> suffixes) {
+        submit(dirs, suffixes);
+    }
+
+    /**
+     * 异步扫描
+     *
+     * @return 扫描句柄，已有扫描正在进行时返回异常完成的句柄
+     */
+    public ScanHandle submit(List<String> dirs, List<String> suffixes) {
+        if (!isRunning.compareAndSet(false, true)) {
+            return ScanHandle.failed(new IllegalStateException("扫描正在进行中"));
+        }
+        initContext(suffixes);
+        ScanHandle handle = new ScanHandle(new CompletableFuture<>(), this::stop);
+        current = handle;
+        Runnable task = () -> runScan(dirs, handle);
+        try {
+            if (null != executor) {
+                executor.execute(task);
+            } else {
+                new Thread(task, "duplicate-finder-scan").start();
             }
-            try {
-                cdl.await();
-                notifyFinish(count.get());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } finally {
-                isRunning.compareAndSet(true, false);
+        } catch (RejectedExecutionException e) {
+            isRunning.set(false);
+            handle.completeExceptionally(e);
+            handle.terminate();
+        }
+        return handle;
+    }
+
+    /**
+     * 扫描线程入口：结束时先释放运行状态并完成清理，最后才完成Future，
+     * 等待Future的调用方随即发起的下一次扫描不会被判定为仍在进行中
+     */
+    private void runScan(List<String> dirs, ScanHandle handle) {
+        long start = System.currentTimeMillis();
+        metrics.register();
+        Object event = ScanEvents.beginScan();
+        progress.start();
+        ScanResult result = null;
+        Throwable failure = null;
+        try {
+            doScan(dirs);
+            result = new ScanResult(count.get(), duplicateCount.get(), isStop(), System.currentTimeMillis() - start);
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            progress.close();
+            metrics.finish();
+            metrics.unregister();
+            LOGGER.info("扫描指标：{}", metrics.snapshot());
+            ScanEvents.endScan(event, String.join(File.pathSeparator, dirs), count.get(), duplicateCount.get(),
+                    metrics.getBytesRead(), isStop());
+            isRunning.set(false);
+            handle.terminate();
+            if (null != failure) {
+                handle.completeExceptionally(failure);
+            } else {
+                handle.complete(result);
             }
         }
     }
 
-    public void scan(List<String> dirs, List<String> suffixes) {
-        if (isRunning.compareAndSet(false, true)) {
-            initContext(suffixes);
+    /**
+     * 单次遍历的流式扫描，各阶段之间通过有界队列连接：
+     * 遍历(按后缀和文件大小分桶) → 部分摘要 → 全量摘要 → 按组比对内容 → 结果通知。
+     * 分组内出现第二个文件时才将其送入部分摘要阶段，部分摘要相同时才送入全量摘要阶段，
+     * 大小唯一或部分摘要唯一的文件始终不会被读取，待扫描文件总数随遍历进度逐步通知。
+     */
+    private void doScan(List<String> dirs) {
+        if (config.getSpillThreshold() > 0) {
+            doExternalScan(dirs);
+            return;
+        }
+        boolean interrupted = false;
+        try {
+            if (config.isHashCacheEnabled()) {
+                hashCache.load();
+            }
+            startPipeline();
+            walk(dirs);
+
+            tracker.awaitIdle();
+            LOGGER.info("扫描索引：文件 {}，目录 {}，索引占用 {} 字节，大小分组占用 {} 字节，堆外：{}",
+                    fileIndex.size(), fileIndex.getDirectoryCount(), fileIndex.footprint(), sizeGroups.footprint(), fileIndex.isOffHeap());
+            notifyStage(ScanStageEnum.SIZE, count.get(), sizeReleased.get(), releaseSingletons(sizeGroups));
+            notifyStage(ScanStageEnum.PARTIAL, sizeReleased.get(), partialReleased.get(), releaseSingletons(partialGroups));
+
+            // 全量摘要分组完整后，摘要相同的文件按组同步读取比对
+            AtomicLong verifyCount = new AtomicLong(0);
+            hashGroups.forEachDuplicate(group -> {
+                verifyCount.addAndGet(group.size());
+                offer(verifyStage, group);
+            });
+            notifyStage(ScanStageEnum.HASH, partialReleased.get(), verifyCount.get(), releaseSingletons(hashGroups));
+            tracker.awaitIdle();
+            notifyStage(ScanStageEnum.VERIFY, verifyCount.get(), duplicateCount.get(), 0);
+            notifyProcess(processed.get());
+        } catch (InterruptedException e) {
+            // 先停止扫描并完成清理，最后再恢复中断标识，否则关闭各阶段时等待线程退出会立即被中断
+            LOGGER.warn("扫描线程被中断，扫描终止");
+            stop();
+            interrupted = true;
+        } finally {
+            closePipeline();
+            hashCache.save(dirs, !isStop());
+            sizeGroups.clear();
+            partialGroups.clear();
+            hashGroups.clear();
+            fileIndex.clear();
+            notifyFinish(count.get());
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 删除外部排序临时目录，目录为本次扫描独占，连同残留的段文件一起删除
+     */
+    private static void deleteTempDir(File tempDir) {
+        File[] files = tempDir.listFiles();
+        if (null == files) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                LOGGER.warn("外部排序段文件删除失败：{}", file.getAbsolutePath());
+            }
+        }
+        if (!tempDir.delete()) {
+            LOGGER.warn("外部排序临时目录删除失败：{}", tempDir.getAbsolutePath());
+        }
+    }
 
-            CyclicBarrier cb = new CyclicBarrier(dirs.size(), () -> {
-                notifyFinish(count.get());
-                isRunning.compareAndSet(true, false);
+    /**
+     * 外部排序分组扫描，用于文件数量超出内存的场景：
+     * 遍历结果按(文件大小, 后缀)外部排序，相邻大小相同的文件送入部分摘要阶段；
+     * 部分摘要、全量摘要结果同样外部排序后再按相邻记录分组，内存中的记录数不超过spillThreshold。
+     * 各阶段之间需要等待上一阶段全部完成，摘要缓存需要全部载入内存，此模式下不使用。
+     */
+    private void doExternalScan(List<String> dirs) {
+        File tempDir = new File(StringUtils.isBlank(config.getTempDir()) ? System.getProperty("java.io.tmpdir") : config.getTempDir(),
+                "duplicatefinder-" + System.nanoTime());
+        int threshold = config.getSpillThreshold();
+        sizeSorter = new ExternalSorter(tempDir, "size", threshold);
+        partialSorter = new ExternalSorter(tempDir, "partial", threshold);
+        hashSorter = new ExternalSorter(tempDir, "hash", threshold);
+        boolean interrupted = false;
+        try {
+            startPipeline();
+            walk(dirs);
+
+            sizeSorter.forEachDuplicate(entry -> {
+                sizeReleased.incrementAndGet();
+                offer(partialStage, entry);
             });
+            tracker.awaitIdle();
+            notifyStage(ScanStageEnum.SIZE, count.get(), sizeReleased.get(), releaseSingletons(sizeSorter));
 
-            for (String dir : dirs) {
-                executor.submit(() -> {
-                    try {
-                        scan(new File(dir));
-                    } finally {
-                        try {
-                            cb.await();
-                        } catch (Throwable e) {
-                            e.printStackTrace();
-                        }
-                    }
-                });
+            partialSorter.forEachDuplicate(entry -> {
+                partialReleased.incrementAndGet();
+                offer(hashStage, entry);
+            });
+            tracker.awaitIdle();
+            notifyStage(ScanStageEnum.PARTIAL, sizeReleased.get(), partialReleased.get(), releaseSingletons(partialSorter));
+
+            AtomicLong verifyCount = new AtomicLong(0);
+            hashSorter.forEachGroup(group -> {
+                verifyCount.addAndGet(group.size());
+                offer(verifyStage, group);
+            });
+            notifyStage(ScanStageEnum.HASH, partialReleased.get(), verifyCount.get(), releaseSingletons(hashSorter));
+            tracker.awaitIdle();
+            notifyStage(ScanStageEnum.VERIFY, verifyCount.get(), duplicateCount.get(), 0);
+            notifyProcess(processed.get());
+        } catch (IOException e) {
+            LOGGER.error("外部排序分组异常，扫描终止，tempDir: {}", tempDir.getAbsolutePath(), e);
+            stop();
+        } catch (InterruptedException e) {
+            LOGGER.warn("扫描线程被中断，扫描终止");
+            stop();
+            interrupted = true;
+        } finally {
+            closePipeline();
+            for (ExternalSorter sorter : Arrays.asList(sizeSorter, partialSorter, hashSorter)) {
+                sorter.close();
+            }
+            sizeSorter = null;
+            partialSorter = null;
+            hashSorter = null;
+            deleteTempDir(tempDir);
+            notifyFinish(count.get());
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void walk(List<String> dirs) {
+        DirectoryWalker walker = newWalker();
+        try {
+            walker.walk(dirs, this::visit, this::isStop, deviceTable);
+        } finally {
+            walker.shutdown();
+        }
+        notifyTotalCount(count.get());
+        notifyStage(ScanStageEnum.WALK, count.get(), count.get(), 0);
+    }
+
+    private DirectoryWalker newWalker() {
+        return new DirectoryWalker(config.getWalkMode(), config.getWalkParallelism(), config.getWalkConcurrency(), config.isFollowLinks());
+    }
+
+    private void startPipeline() {
+        int capacity = config.getQueueCapacity();
+        tracker = new PipelineStage.Tracker();
+        deviceTable = config.getReadersPerDevice() > 0 ? new DeviceTable() : null;
+        sinkStage = new PipelineStage<>("sink", 1, capacity, this::collect, tracker).start();
+        verifyStage = new PipelineStage<>("verify", config.getVerifyThreads(), capacity,
+                skipOnStop(this::verify), tracker).start();
+        hashStage = readStage("hash", this::hash);
+        partialStage = readStage("partial", this::partial);
+        metrics.queue("partial", partialStage::size);
+        metrics.queue("hash", hashStage::size);
+        metrics.queue("verify", verifyStage::size);
+        metrics.queue("sink", sinkStage::size);
+    }
+
+    /**
+     * 读取文件内容的阶段，配置了每设备读取线程数时按设备调度，否则使用固定线程数
+     */
+    private Stage<FileEntry> readStage(String name, Consumer<FileEntry> handler) {
+        if (config.getReadersPerDevice() > 0) {
+            DeviceTable devices = deviceTable;
+            int readers = config.getReadersPerDevice();
+            int rotationalReaders = config.getReadersPerRotationalDevice();
+            return new DeviceStage<>(name, device -> devices.isRotational(device) ? rotationalReaders : readers, config.getQueueCapacity(),
+                    FileEntry::getPath, FileEntry::getDevice, skipOnStop(handler), tracker);
+        }
+        return new PipelineStage<>(name, config.getHashThreads(), config.getQueueCapacity(),
+                skipOnStop(handler), tracker).start();
+    }
+
+    private void closePipeline() {
+        try {
+            // 按上游到下游的顺序关闭，保证下游处理完上游提交的全部数据
+            for (Stage<?> stage : Arrays.asList(partialStage, hashStage, verifyStage, sinkStage)) {
+                if (null != stage) {
+                    stage.close();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (null != deviceTable) {
+                LOGGER.info("按设备调度读取，设备数：{}", deviceTable.size());
+                deviceTable.clear();
+                deviceTable = null;
             }
         }
     }
 
+    /**
+     * 扫描停止后，队列中剩余的数据直接丢弃
+     */
+    private <T> Consumer<T> skipOnStop(Consumer<T> handler) {
+        return item -> {
+            if (!isStop()) {
+                handler.accept(item);
+            }
+        };
+    }
+
+    /**
+     * 提交到下游阶段，队列已满时阻塞，扫描停止后不再提交。遍历线程在ForkJoinPool中，经ManagedBlocker阻塞
+     */
+    private <T> void offer(Stage<T> stage, T item) {
+        if (isStop()) {
+            return;
+        }
+        try {
+            stage.managedPut(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
+    /**
+     * 遍历线程回调：按(后缀, 文件大小)分桶，出现大小相同的文件时送入部分摘要阶段。
+     * 遍历到的文件同时标记摘要缓存记录仍然有效，包括被后缀过滤的文件
+     */
+    private void visit(FileEntry entry) {
+        hashCache.touch(entry);
+        if (isFilter(filterSuffixes, entry.getSuffix())) {
+            return;
+        }
+        long total = count.incrementAndGet();
+        metrics.walked();
+        if (total % TOTAL_COUNT_STEP == 0) {
+            notifyTotalCount(total);
+        }
+        if (null != sizeSorter) {
+            spill(sizeSorter, entry, 0);
+            return;
+        }
+        fileIndex.add(entry);
+        for (FileEntry item : sizeGroups.add(entry, 0)) {
+            sizeReleased.incrementAndGet();
+            offer(partialStage, item);
+        }
+    }
+
+    /**
+     * 部分摘要阶段：按部分摘要分组，出现部分摘要相同的文件时送入全量摘要阶段
+     */
+    private void partial(FileEntry entry) {
+        long hash;
+        try {
+            hash = partialHash(entry);
+        } catch (IOException e) {
+            LOGGER.warn("部分摘要计算异常，file: {}", entry, e);
+            notifyProcess(processed.incrementAndGet());
+            return;
+        }
+        if (null != partialSorter) {
+            spill(partialSorter, entry, hash);
+            return;
+        }
+        for (FileEntry item : partialGroups.add(entry, hash)) {
+            partialReleased.incrementAndGet();
+            offer(hashStage, item);
+        }
+    }
+
+    /**
+     * 全量摘要阶段：按全量摘要分组，全部摘要计算完成后再按组比对内容
+     */
+    private void hash(FileEntry entry) {
+        long hash;
+        try {
+            hash = fullHash(entry);
+        } catch (IOException e) {
+            LOGGER.warn("摘要计算异常，file: {}", entry, e);
+            notifyProcess(processed.incrementAndGet());
+            return;
+        }
+        if (null != hashSorter) {
+            spill(hashSorter, entry, hash);
+            return;
+        }
+        hashGroups.add(entry, hash);
+    }
+
+    /**
+     * 写入外部排序，段文件写出失败时终止扫描
+     */
+    private void spill(ExternalSorter sorter, FileEntry entry, long hash) {
+        try {
+            sorter.add(entry, hash);
+        } catch (IOException e) {
+            LOGGER.error("外部排序段文件写出异常，扫描终止", e);
+            stop();
+        }
+    }
+
+    /**
+     * 内容比对阶段：组内文件同步读取、逐块拆分，每个文件只读取一次，
+     * 每个内容相同的分组保留第一个文件，其余均为重复文件
+     */
+    private void verify(List<FileEntry> group) {
+        List<FileEntry> files = distinctFiles(group);
+        if (files.size() < 2) {
+            notifyProcess(processed.addAndGet(group.size()));
+            return;
+        }
+        List<Path> paths = new ArrayList<>(files.size());
+        Map<Path, FileEntry> entries = new IdentityHashMap<>(files.size() * 2);
+        long bytes = 0;
+        for (FileEntry entry : files) {
+            paths.add(entry.getPath());
+            entries.put(entry.getPath(), entry);
+            bytes += entry.getSize();
+        }
+        long start = System.nanoTime();
+        Object event = ScanEvents.beginRead();
+        List<List<Path>> partitions = channelIO.partition(paths);
+        ScanEvents.endRead(event, ScanStageEnum.VERIFY, group.get(0), bytes);
+        metrics.latency(ScanStageEnum.VERIFY, System.nanoTime() - start);
+        metrics.verified(bytes);
+        for (List<Path> partition : partitions) {
+            List<FileEntry> duplicates = new ArrayList<>(partition.size() - 1);
+            for (Path duplicate : partition.subList(1, partition.size())) {
+                duplicates.add(entries.get(duplicate));
+                metrics.duplicate();
+            }
+            duplicateCount.addAndGet(duplicates.size());
+            notifyGroup(new DuplicateGroup(groupSequence.incrementAndGet(), entries.get(partition.get(0)), duplicates));
+        }
+        notifyProcess(processed.addAndGet(group.size()));
+    }
+
+    /**
+     * 同一文件的多个路径(硬链接，或跟随符号链接时的链接路径)不是重复文件，删除或移动其中之一不能释放空间，
+     * 无论是否跟随符号链接都只保留第一个路径。文件标识只保存了哈希值，相同时再以{@link Files#isSameFile}确认
+     */
+    private static List<FileEntry> distinctFiles(List<FileEntry> group) {
+        Map<Integer, FileEntry> byKey = new HashMap<>(group.size() * 2);
+        List<FileEntry> distinct = new ArrayList<>(group.size());
+        for (FileEntry entry : group) {
+            FileEntry same = 0 == entry.getFileKey() ? null : byKey.putIfAbsent(entry.getFileKey(), entry);
+            if (null == same || !isSameFile(same, entry)) {
+                distinct.add(entry);
+            }
+        }
+        return distinct;
+    }
+
+    private static boolean isSameFile(FileEntry first, FileEntry second) {
+        try {
+            return Files.isSameFile(first.getPath(), second.getPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 所有任务完成后，只有一个文件的分组中的文件即为唯一文件，视为处理完成
+     *
+     * @return 唯一文件的总大小，即无需继续读取的字节数
+     */
+    private long releaseSingletons(FileGroups groups) {
+        processed.addAndGet(groups.singletonCount());
+        long savedBytes = groups.singletonBytes();
+        groups.clear();
+        return savedBytes;
+    }
+
+    private long releaseSingletons(ExternalSorter sorter) {
+        processed.addAndGet(sorter.getSingletonCount());
+        return sorter.getSingletonBytes();
+    }
+
+    /**
+     * 停止正在进行的扫描：不再提交新的数据，队列中剩余的数据直接丢弃，正在读取的文件在下一块之前中断
+     *
+     * @return 是否有正在进行且未停止的扫描
+     */
     public boolean stop() {
-        return isRunning.compareAndSet(true, false);
+        if (!isRunning.get() || stopRequested) {
+            return false;
+        }
+        stopRequested = true;
+        ChannelIO io = channelIO;
+        if (null != io) {
+            io.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * 停止正在进行的扫描，并等待扫描线程及各阶段线程全部退出，等待期间被中断时不再等待，保留中断状态
+     */
+    @Override
+    public void close() {
+        ScanHandle handle = current;
+        if (null != handle) {
+            handle.cancel();
+            try {
+                handle.awaitTermination();
+            } catch (InterruptedException e) {
+                LOGGER.warn("等待扫描线程结束时被中断");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 当前(或最近一次)扫描的指标快照，扫描进行中也可以调用
+     */
+    public ScanMetrics.Snapshot getMetrics() {
+        return metrics.snapshot();
     }
 
     private void initContext(List<String> suffixes) {
-        fileMap.clear();
+        stopRequested = false;
+        fileIndex.reset(config.isIndexOffHeap());
+        sizeGroups.clear();
+        partialGroups.clear();
+        hashGroups.clear();
         count.set(0);
+        processed.set(0);
+        sizeReleased.set(0);
+        partialReleased.set(0);
+        duplicateCount.set(0);
+        groupSequence.set(0);
+        pendingGroups = new ArrayList<>();
         filterSuffixes.clear();
         filterSuffixes.addAll(Utils.clear(suffixes));
+        metrics.start();
+        progress = new ProgressCoalescer(config.getProgressInterval(), this::dispatchProgress);
+        hashers = ContentHashers.threadLocal(config.getHashAlgorithm());
+        channelIO = new ChannelIO(config.getMmapThreshold());
+        hashCache = new HashCache(new File(ConfigUtils.getDataFilePath(HASH_CACHE_NAME)),
+                config.getHashAlgorithm(), config.getPartialBlockSize(), config.getPartialSampleCount());
     }
 
+    /**
+     * 扫描期间的进度只更新最新值，由进度线程合并后通知
+     */
     private void notifyTotalCount(Long count) {
+        progress.total(count);
+    }
+
+    private void dispatchTotalCount(long count) {
         for (ScanListener listener : listeners) {
             try {
                 listener.totalCount(count);
@@ -208,107 +780,125 @@ public class DuplicateFinder {
         }
     }
 
-    private void notifyDuplicate(String first, String duplicate) {
-        for (ScanListener listener : listeners) {
+    /**
+     * 重复文件分组交给结果通知阶段的单个线程执行，避免监听器阻塞比对线程
+     */
+    private void notifyGroup(DuplicateGroup group) {
+        offer(sinkStage, group);
+    }
+
+    /**
+     * 结果通知线程回调：分组攒够一批或队列中暂无后续分组时通知一次，
+     * 最后一个分组处理时队列必然为空，不会有分组滞留
+     */
+    private void collect(DuplicateGroup group) {
+        pendingGroups.add(group);
+        if (pendingGroups.size() >= config.getListenerBatchSize() || sinkStage.size() == 0) {
+            List<DuplicateGroup> batch = Collections.unmodifiableList(pendingGroups);
+            pendingGroups = new ArrayList<>();
+            dispatchGroups(batch);
+        }
+    }
+
+    private void dispatchGroups(List<DuplicateGroup> batch) {
+        for (GroupListener listener : groupListeners) {
             try {
-                listener.duplicate(first, duplicate);
+                listener.groups(batch);
             } catch (Throwable t) {
-                LOGGER.warn("duplicate 监听器执行异常", t);
+                LOGGER.warn("groups 监听器执行异常", t);
             }
         }
     }
 
     private void notifyProcess(Long count) {
+        progress.processed(count);
+    }
+
+    private void dispatchProgress(long processed, long total, long delta) {
         for (ScanListener listener : listeners) {
             try {
-                listener.process(count);
+                listener.progress(processed, total, delta);
             } catch (Throwable t) {
-                LOGGER.warn("process 监听器执行异常", t);
+                LOGGER.warn("progress 监听器执行异常", t);
             }
         }
     }
 
-    private void notifyFinish(Long count) {
+    private void notifyStage(ScanStageEnum stage, long inputCount, long outputCount, long savedBytes) {
+        LOGGER.info("扫描阶段完成，stage: {}, input: {}, output: {}, savedBytes: {}", stage, inputCount, outputCount, savedBytes);
+        metrics.avoided(savedBytes);
+        ScanEvents.stage(stage, inputCount, outputCount, savedBytes);
+        progress.flush();
         for (ScanListener listener : listeners) {
             try {
-                listener.finish(count);
+                listener.stage(stage, inputCount, outputCount, savedBytes);
             } catch (Throwable t) {
-                LOGGER.warn("finish 监听器执行异常", t);
+                LOGGER.warn("stage 监听器执行异常", t);
             }
         }
     }
 
-    private void scan(File dir) {
-        for (File file : dir.listFiles()) {
-            if (isStop()) {
-                break;
-            }
-            if (file.isDirectory()) {
-                scan(file);
-            } else {
-                String suffix = Utils.getFileSuffix(file.getName());
-                if (isFilter(suffix)) {
-                    continue;
-                }
-                count.incrementAndGet();
-                String key = mapKey(suffix, file);
-                List<File> fileList = fileMap.get(key);
-                if (CollectionUtils.isEmpty(fileList) || notMatchIn(file, fileList)) {
-                    List<File> newFileList = Collections.singletonList(file);
-                    List<File> mapFileList = fileMap.putIfAbsent(key, newFileList);
-                    if (null != mapFileList) {
-                        synchronized (mapFileList) {
-                            List<File> diff = diff(mapFileList, fileList);
-                            if (CollectionUtils.isEmpty(diff) || notMatchIn(file, fileList)) {
-                                mapFileList.add(file);
-                            }
-                        }
-                    }
-                }
-                notifyProcess(count.get());
+    private void notifyFinish(Long count) {
+        progress.close();
+        for (ScanListener listener : listeners) {
+            try {
+                listener.finish(count);
+            } catch (Throwable t) {
+                LOGGER.warn("finish 监听器执行异常", t);
             }
         }
     }
 
-    private List<File> diff(List<File> fileList, List<File> subFileList) {
-        if (CollectionUtils.isEmpty(subFileList)) {
-            return fileList;
+    private long partialHash(FileEntry entry) throws IOException {
+        HashCache.Entry cached = hashCache.get(entry);
+        if (null != cached && cached.hasPartialHash()) {
+            metrics.cache(true);
+            return cached.getPartialHash();
         }
-        if (fileList.size() == subFileList.size()) {
-            return new ArrayList<>();
+        if (null != cached) {
+            metrics.cache(false);
         }
-        List<File> diffList = new ArrayList<>();
-        for (File file : fileList) {
-            if (!subFileList.contains(file)) {
-                diffList.add(file);
-            }
+        int blockSize = Math.max(config.getPartialBlockSize(), 1);
+        int sampleCount = Math.max(config.getPartialSampleCount(), 0);
+        long start = System.nanoTime();
+        Object event = ScanEvents.beginRead();
+        long hash = channelIO.partialHash(entry.getPath(), hashers.get(), blockSize, sampleCount);
+        long bytes = Math.min(entry.getSize(), (long) blockSize * (sampleCount + 2));
+        ScanEvents.endRead(event, ScanStageEnum.PARTIAL, entry, bytes);
+        metrics.latency(ScanStageEnum.PARTIAL, System.nanoTime() - start);
+        metrics.hashed(bytes);
+        if (null != cached) {
+            cached.setPartialHash(hash);
         }
-        return diffList;
+        return hash;
     }
 
-    private boolean notMatchIn(File file, List<File> fileList) {
-        for (File item : fileList) {
-            try {
-                if (FileUtils.contentEquals(file, item)) {
-                    notifyDuplicate(item.getAbsolutePath(), file.getAbsolutePath());
-                    return false;
-                }
-            } catch (IOException e) {
-                LOGGER.warn("文件比较异常，file1: {}, file2: {}", item.getAbsolutePath(), file.getAbsolutePath(), e);
-            }
+    private long fullHash(FileEntry entry) throws IOException {
+        HashCache.Entry cached = hashCache.get(entry);
+        if (null != cached && cached.hasFullHash()) {
+            metrics.cache(true);
+            return cached.getFullHash();
         }
-        return true;
-    }
-
-    private String mapKey(String suffix, File file) {
-        return suffix + UNDER_LINE + file.length() + UNDER_LINE + Utils.getMD5(file);
+        if (null != cached) {
+            metrics.cache(false);
+        }
+        long start = System.nanoTime();
+        Object event = ScanEvents.beginRead();
+        long hash = channelIO.hash(entry.getPath(), hashers.get());
+        ScanEvents.endRead(event, ScanStageEnum.HASH, entry, entry.getSize());
+        metrics.latency(ScanStageEnum.HASH, System.nanoTime() - start);
+        metrics.hashed(entry.getSize());
+        if (null != cached) {
+            cached.setFullHash(hash);
+        }
+        return hash;
     }
 
     private boolean isStop() {
-        return !isRunning.get();
+        return stopRequested || !isRunning.get();
     }
 
-    private boolean isFilter(String suffix) {
-        return CollectionUtils.isNotEmpty(filterSuffixes) && !filterSuffixes.contains(suffix);
+    private static boolean isFilter(List<String> suffixes, String suffix) {
+        return CollectionUtils.isNotEmpty(suffixes) && !suffixes.contains(suffix);
     }
 }
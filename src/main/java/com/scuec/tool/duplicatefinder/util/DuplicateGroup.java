@@ -0,0 +1,51 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 内容完全相同的一组文件：保留第一个文件，其余均为重复文件。
+ * 文件直接引用扫描得到的{@link FileEntry}，需要路径字符串时再由监听器自行生成
+ */
+public class DuplicateGroup {
+    private final long id;
+    private final FileEntry retained;
+    private final List<FileEntry> duplicates;
+
+    public DuplicateGroup(long id, FileEntry retained, List<FileEntry> duplicates) {
+        this.id = id;
+        this.retained = retained;
+        this.duplicates = Collections.unmodifiableList(duplicates);
+    }
+
+    /**
+     * 本次扫描内的分组编号，从1开始，按比对完成的先后分配
+     */
+    public long getId() {
+        return id;
+    }
+
+    public FileEntry getRetained() {
+        return retained;
+    }
+
+    public List<FileEntry> getDuplicates() {
+        return duplicates;
+    }
+
+    public long getSize() {
+        return retained.getSize();
+    }
+
+    /**
+     * 重复文件占用的字节数，即处理后可以回收的空间
+     */
+    public long getWastedBytes() {
+        return retained.getSize() * duplicates.size();
+    }
+
+    @Override
+    public String toString() {
+        return retained + " " + duplicates;
+    }
+}
@@ -1,55 +1,155 @@
 package com.scuec.tool.duplicatefinder.util;
 
-import com.alibaba.fastjson.JSON;
+import com.scuec.tool.duplicatefinder.config.Config;
 import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateFormatUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
+/**
+ * 重复文件的处理：记录处理日志，并把移动、删除或链接动作交给{@link ActionExecutor}在独立线程中批量执行；
+ * 试运行时只把动作写入处理计划文件
+ */
 public class DuplicateProcessor implements DuplicateFinder.ScanListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DuplicateProcessor.class);
     private static final String ROOT_NAME = "finder";
     private static final String MOVE_DIR = "move.dir";
+    private static final String PLAN = "plan";
     private static final String DOT = ".";
     private String scanRootPath;
     private String moveDirPath;
     private ProcessTypeEnum processType;
-    private FinderLogger logger;
+    private Config config;
+    private volatile FinderLogger logger;
+    private ActionExecutor executor;
+    private ActionPlan plan;
+    private File planFile;
+    private volatile long reclaimedBytes;
     private String token = DateFormatUtils.format(new Date(), "yyyyMMddHHmmss");
 
     public DuplicateProcessor(String scanRootPath, ProcessTypeEnum processType)  {
+        this(scanRootPath, processType, new Config());
+    }
+
+    public DuplicateProcessor(String scanRootPath, ProcessTypeEnum processType, Config config)  {
         this.scanRootPath = scanRootPath;
         this.processType = processType;
-        try {
-            logger = new FinderLogger(scanRootPath);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        this.config = null == config ? new Config() : config;
     }
 
     @Override
     public void duplicate(String first, String duplicate) {
-        logger.scanLog("scan", "start", first, duplicate);
-        if (ProcessTypeEnum.MOVE.equals(processType)) {
-            String moveDir = getMoveDir();
-            if (logger.scanLog("move", "start", first, duplicate, moveDir)) {
-                Utils.moveTo(duplicate, moveDir);
-                logger.scanLog("move", "end", first, duplicate, moveDir);
+        getLogger().scanLog("scan", "start", first, duplicate);
+        if (!ProcessTypeEnum.SCAN.equals(processType)) {
+            String target = ProcessTypeEnum.MOVE.equals(processType) ? getMoveDir() : null;
+            DuplicateAction action = new DuplicateAction(processType, first, duplicate, target);
+            try {
+                if (config.isDryRun()) {
+                    getPlan().add(action);
+                } else {
+                    getExecutor().submit(action);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("处理计划写入失败：{}", duplicate, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        } else if (ProcessTypeEnum.REMOVE.equals(processType)) {
-            if (logger.scanLog("delete", "start", first, duplicate)) {
-                Utils.removeFile(new File(duplicate));
-                logger.scanLog("delete", "end", first, duplicate);
+        }
+        getLogger().scanLog("scan", "end", first, duplicate);
+    }
+
+    /**
+     * 执行试运行生成的处理计划，阻塞直到全部完成
+     *
+     * @return 执行成功的动作数
+     */
+    public long applyPlan(File file) throws IOException, InterruptedException {
+        List<DuplicateAction> actions = ActionPlan.read(file);
+        LOGGER.info("执行处理计划：{}，动作数：{}", file.getAbsolutePath(), actions.size());
+        try (ActionExecutor planExecutor = newExecutor()) {
+            planExecutor.execute(actions);
+            reportReclaimed(planExecutor);
+            return planExecutor.getSucceeded();
+        } finally {
+            closeLogger();
+        }
+    }
+
+    /**
+     * 最近一次试运行生成的处理计划文件，没有生成时返回null
+     */
+    public File getPlanFile() {
+        return planFile;
+    }
+
+    private synchronized ActionExecutor getExecutor() {
+        if (null == executor) {
+            executor = newExecutor();
+        }
+        return executor;
+    }
+
+    private ActionExecutor newExecutor() {
+        return new ActionExecutor(config.getActionThreads(), config.getActionBatchSize(), config.isPermanentDelete(), new ActionExecutor.ActionListener() {
+            @Override
+            public boolean before(DuplicateAction action) {
+                return getLogger().scanLog(label(action), "start", action.getFirst(), action.getDuplicate(), action.getTarget());
             }
+
+            @Override
+            public void after(DuplicateAction action, boolean success) {
+                getLogger().scanLog(label(action), success ? "end" : "fail", action.getFirst(), action.getDuplicate(), action.getTarget());
+            }
+        });
+    }
+
+    private static String label(DuplicateAction action) {
+        if (ProcessTypeEnum.REMOVE.equals(action.getType())) {
+            return "delete";
         }
-        logger.scanLog("scan", "end", first, duplicate);
+        return action.getType().name().toLowerCase();
     }
 
+    /**
+     * 记录各分组链接释放的字节数，返回总数
+     */
+    private long reportReclaimed(ActionExecutor finished) {
+        finished.forEachReclaimed((first, bytes) -> getLogger().scanLog("reclaim", "group", first, null, String.valueOf(bytes)));
+        long bytes = finished.getReclaimedBytes();
+        if (bytes > 0) {
+            LOGGER.info("链接重复文件释放空间：{} 字节", bytes);
+        }
+        reclaimedBytes += bytes;
+        return bytes;
+    }
+
+    /**
+     * 硬链接、reflink累计释放的字节数
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    private synchronized ActionPlan getPlan() throws IOException {
+        if (null == plan) {
+            String root = scanRootPath + File.separator + ROOT_NAME;
+            Utils.mkdirs(root);
+            planFile = new File(root + File.separator + PLAN + DOT + DateFormatUtils.format(new Date(), "yyyyMMddHHmmss") + ".jsonl");
+            plan = new ActionPlan(planFile);
+        }
+        return plan;
+    }
+
+    /**
+     * 移动目录只确定路径，由处理线程在第一次移动时创建
+     */
     private String getMoveDir() {
         if (StringUtils.isNotBlank(moveDirPath)) {
             return moveDirPath;
@@ -57,7 +157,6 @@ public class DuplicateProcessor implements DuplicateFinder.ScanListener {
         synchronized (ROOT_NAME) {
             if (StringUtils.isBlank(moveDirPath)) {
                 moveDirPath = scanRootPath + File.separator + ROOT_NAME + File.separator + MOVE_DIR + DOT + DateFormatUtils.format(new Date(), "yyyyMMddHHmmss");
-                Utils.mkdirs(moveDirPath);
             }
         }
         return moveDirPath;
@@ -68,26 +167,79 @@ public class DuplicateProcessor implements DuplicateFinder.ScanListener {
 
     }
 
+    /**
+     * 等待排队中的移动、删除全部完成后再结束，试运行时关闭计划文件
+     */
     @Override
     public void finish(long count) {
-        logger.flush();
+        synchronized (this) {
+            try {
+                if (null != executor) {
+                    executor.close();
+                    LOGGER.info("重复文件处理完成，成功：{}，失败：{}", executor.getSucceeded(), executor.getFailed());
+                    reportReclaimed(executor);
+                }
+                if (null != plan) {
+                    plan.close();
+                    LOGGER.info("处理计划已生成：{}，动作数：{}", planFile.getAbsolutePath(), plan.getCount());
+                }
+            } catch (IOException e) {
+                LOGGER.warn("处理计划关闭失败", e);
+            } finally {
+                executor = null;
+                plan = null;
+            }
+        }
+        closeLogger();
         this.moveDirPath = null;
     }
 
+    /**
+     * 处理日志在第一次记录时打开，处理结束后关闭，再次处理时追加到同一文件
+     */
+    private FinderLogger getLogger() {
+        FinderLogger current = logger;
+        if (null != current) {
+            return current;
+        }
+        synchronized (this) {
+            if (null == logger) {
+                try {
+                    logger = new FinderLogger(scanRootPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("处理日志无法创建：" + scanRootPath, e);
+                }
+            }
+            return logger;
+        }
+    }
+
+    /**
+     * 写完排队中的日志后关闭文件并结束写入线程
+     */
+    private synchronized void closeLogger() {
+        if (null != logger) {
+            logger.close();
+            logger = null;
+        }
+    }
+
     @Override
     public void totalCount(long count) {
 
     }
 
+    /**
+     * 处理日志，每个事件一行JSON，由{@link AsyncLogWriter}在后台线程批量写入
+     */
     public class FinderLogger {
-        private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
         private static final String SCAN_LOG = "scan.log";
-        private final PrintWriter writer;
+        private final AsyncLogWriter writer;
 
-        public FinderLogger(String rootBase) throws FileNotFoundException {
+        public FinderLogger(String rootBase) throws IOException {
             String root = rootBase + File.separator + ROOT_NAME;
             Utils.mkdirs(root);
-            this.writer = new PrintWriter( root + File.separator + SCAN_LOG + DOT + token);
+            this.writer = new AsyncLogWriter(new File(root + File.separator + SCAN_LOG + DOT + token));
         }
 
         public boolean scanLog(String type, String label, String first, String duplicate) {
@@ -95,27 +247,18 @@ public class DuplicateProcessor implements DuplicateFinder.ScanListener {
         }
 
         public boolean scanLog(String type, String label, String first, String duplicate, String other) {
-            Map<String, String> map = new HashMap<>();
-            map.put("time", DateFormatUtils.format(new Date(), DATE_PATTERN));
-            map.put("type", type);
-            map.put("label", label);
-            map.put("first", first);
-            map.put("duplicate", duplicate);
-            map.put("other", other);
-            return scanLog(JSON.toJSONString(map));
-        }
-
-        public boolean scanLog(String log) {
-            try {
-                writer.write(log + "\n");
-            } catch (Exception e) {
-                return false;
-            }
-            return true;
+            return writer.log(type, label, first, duplicate, other);
         }
 
+        /**
+         * 等待已记录的日志写入磁盘
+         */
         public void flush() {
             writer.flush();
         }
+
+        public void close() {
+            writer.close();
+        }
     }
 }
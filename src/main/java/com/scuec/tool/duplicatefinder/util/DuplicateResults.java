@@ -0,0 +1,284 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描结果中的重复文件分组，供结果浏览按需分页读取。
+ * <p>
+ * 分组记录为定长32字节(文件大小、可回收字节数、首个文件编号、文件数、后缀编号)，
+ * 组内文件转存到独立的{@link FileIndex}中且编号连续，扫描索引清空后仍可读取；
+ * 千万级分组时不保留任何DuplicateGroup、Path或String对象，只在读取某一行时还原。
+ * 分组由结果通知线程追加，界面线程通过{@link #view(String)}取得某一时刻的排序视图后读取
+ */
+public class DuplicateResults implements DuplicateFinder.GroupListener {
+    private static final int RECORD_SIZE = 32;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final boolean offHeap;
+    private final List<String> suffixes = new ArrayList<>();
+    private final Map<String, Integer> suffixIds = new HashMap<>();
+    private final BitSet processed = new BitSet();
+    private FileIndex files;
+    private PagedBuffer records;
+    private int groupCount;
+    private long fileCount;
+    private long wastedBytes;
+
+    public DuplicateResults() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap 是否使用堆外内存存放分组记录和文件路径
+     */
+    public DuplicateResults(boolean offHeap) {
+        this.offHeap = offHeap;
+        clear();
+    }
+
+    public synchronized void clear() {
+        files = new FileIndex(offHeap);
+        records = new PagedBuffer(offHeap);
+        suffixes.clear();
+        suffixIds.clear();
+        processed.clear();
+        groupCount = 0;
+        fileCount = 0;
+        wastedBytes = 0;
+    }
+
+    @Override
+    public synchronized void groups(List<DuplicateGroup> groups) {
+        for (DuplicateGroup group : groups) {
+            int first = files.store(group.getRetained());
+            for (FileEntry duplicate : group.getDuplicates()) {
+                files.store(duplicate);
+            }
+            long base = (long) groupCount * RECORD_SIZE;
+            records.allocate(RECORD_SIZE);
+            records.putLong(base, group.getSize());
+            records.putLong(base + 8, group.getWastedBytes());
+            records.putInt(base + 16, first);
+            records.putInt(base + 20, group.getDuplicates().size() + 1);
+            records.putInt(base + 24, suffixId(group.getRetained().getSuffix()));
+            groupCount++;
+            fileCount += group.getDuplicates().size() + 1;
+            wastedBytes += group.getWastedBytes();
+        }
+    }
+
+    public synchronized int size() {
+        return groupCount;
+    }
+
+    public synchronized long getFileCount() {
+        return fileCount;
+    }
+
+    public synchronized long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    /**
+     * 已出现的文件后缀，按出现先后排列
+     */
+    public synchronized List<String> getSuffixes() {
+        return new ArrayList<>(suffixes);
+    }
+
+    /**
+     * 当前全部分组中后缀匹配的分组，按可回收字节数从大到小排列，之后追加的分组不在视图中
+     *
+     * @param suffix 文件后缀，为空时不过滤
+     */
+    public View view(String suffix) {
+        int count;
+        int suffixId;
+        PagedBuffer records;
+        FileIndex files;
+        List<String> names;
+        synchronized (this) {
+            count = groupCount;
+            records = this.records;
+            files = this.files;
+            names = new ArrayList<>(suffixes);
+            Integer id = StringUtils.isBlank(suffix) ? null : suffixIds.get(suffix.toLowerCase());
+            suffixId = null == id ? -1 : id;
+            if (StringUtils.isNotBlank(suffix) && suffixId < 0) {
+                count = 0;
+            }
+        }
+        int matched = 0;
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (suffixId < 0 || records.getInt((long) i * RECORD_SIZE + 24) == suffixId) {
+                order[matched++] = i;
+            }
+        }
+        long[] keys = new long[matched];
+        for (int i = 0; i < matched; i++) {
+            keys[i] = records.getLong((long) order[i] * RECORD_SIZE + 8);
+        }
+        int[] rows = matched == count ? order : Arrays.copyOf(order, matched);
+        sortDescending(keys, rows, 0, matched - 1);
+        return new View(rows, keys, records, files, names);
+    }
+
+    public synchronized void markProcessed(int group) {
+        processed.set(group);
+    }
+
+    public synchronized boolean isProcessed(int group) {
+        return processed.get(group);
+    }
+
+    private int suffixId(String suffix) {
+        String key = StringUtils.defaultString(suffix).toLowerCase();
+        Integer id = suffixIds.get(key);
+        if (null == id) {
+            id = suffixes.size();
+            suffixes.add(key);
+            suffixIds.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * 按键从大到小排序，键相同时按分组编号从小到大，keys与rows同步交换，不装箱
+     */
+    private static void sortDescending(long[] keys, int[] rows, int low, int high) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            int middle = (low + high) >>> 1;
+            if (before(keys, rows, middle, low)) {
+                swap(keys, rows, middle, low);
+            }
+            if (before(keys, rows, high, low)) {
+                swap(keys, rows, high, low);
+            }
+            if (before(keys, rows, high, middle)) {
+                swap(keys, rows, high, middle);
+            }
+            // 三数取中后把枢轴放到high-1
+            swap(keys, rows, middle, high - 1);
+            int pivot = high - 1;
+            int i = low;
+            int j = high - 1;
+            while (true) {
+                while (before(keys, rows, ++i, pivot)) {
+                }
+                while (before(keys, rows, pivot, --j)) {
+                }
+                if (i >= j) {
+                    break;
+                }
+                swap(keys, rows, i, j);
+            }
+            swap(keys, rows, i, high - 1);
+            // 先递归较小的一侧，较大的一侧继续循环，递归深度不超过log(n)
+            if (i - low < high - i) {
+                sortDescending(keys, rows, low, i - 1);
+                low = i + 1;
+            } else {
+                sortDescending(keys, rows, i + 1, high);
+                high = i - 1;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && before(keys, rows, j, j - 1); j--) {
+                swap(keys, rows, j, j - 1);
+            }
+        }
+    }
+
+    private static boolean before(long[] keys, int[] rows, int a, int b) {
+        return keys[a] > keys[b] || (keys[a] == keys[b] && rows[a] < rows[b]);
+    }
+
+    private static void swap(long[] keys, int[] rows, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+    }
+
+    /**
+     * 某一时刻的排序视图，按行号读取分组，只在读取时从记录中还原文件。
+     * 视图持有创建时的记录，结果清空后仍可读取，但不再反映之后的变化
+     */
+    public static class View {
+        private final int[] groups;
+        private final long[] wastedBytes;
+        private final PagedBuffer records;
+        private final FileIndex files;
+        private final List<String> suffixes;
+
+        private View(int[] groups, long[] wastedBytes, PagedBuffer records, FileIndex files, List<String> suffixes) {
+            this.groups = groups;
+            this.wastedBytes = wastedBytes;
+            this.records = records;
+            this.files = files;
+            this.suffixes = suffixes;
+        }
+
+        public int size() {
+            return groups.length;
+        }
+
+        /**
+         * 行对应的分组编号，用于{@link DuplicateResults#markProcessed(int)}
+         */
+        public int group(int row) {
+            return groups[row];
+        }
+
+        public long getWastedBytes(int row) {
+            return wastedBytes[row];
+        }
+
+        public long getSize(int row) {
+            return records.getLong(base(row));
+        }
+
+        /**
+         * 组内文件数，包括保留的文件
+         */
+        public int getFileCount(int row) {
+            return records.getInt(base(row) + 20);
+        }
+
+        public String getSuffix(int row) {
+            return suffixes.get(records.getInt(base(row) + 24));
+        }
+
+        public FileEntry getRetained(int row) {
+            return files.get(records.getInt(base(row) + 16));
+        }
+
+        /**
+         * 还原完整分组，分组编号从1开始
+         */
+        public DuplicateGroup getGroup(int row) {
+            long base = base(row);
+            int first = records.getInt(base + 16);
+            int count = records.getInt(base + 20);
+            List<FileEntry> duplicates = new ArrayList<>(count - 1);
+            for (int i = 1; i < count; i++) {
+                duplicates.add(files.get(first + i));
+            }
+            return new DuplicateGroup(groups[row] + 1L, files.get(first), duplicates);
+        }
+
+        private long base(int row) {
+            return (long) groups[row] * RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * 外部排序分组：文件按(文件大小, 后缀, hash)排序后相邻的文件即为同一分组。
+ * <p>
+ * 记录数达到阈值时排序后写入临时目录下的有序段文件，全部加入后多路归并各段文件，
+ * 段文件过多时先分批归并，同时打开的文件数不超过{@link #MAX_FAN_IN}。
+ * 没有写出过段文件时直接在内存中排序，不产生磁盘读写。
+ * <p>
+ * 同一时间只写出一个段文件，写出期间缓冲区再次写满的线程等待写出完成，
+ * 因此加入阶段内存中的记录不超过阈值的两倍(正在加入的缓冲区和正在写出的缓冲区)，与加入线程数无关；
+ * {@link #forEachGroup(Consumer)}另需在内存中容纳当前的完整分组。
+ */
+public class ExternalSorter implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalSorter.class);
+    private static final int MAX_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Comparator<Record> ORDER = Comparator.<Record>comparingLong(r -> r.entry.getSize())
+            .thenComparing(r -> r.entry.getSuffix(), Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingLong(r -> r.hash);
+
+    private final File directory;
+    private final String name;
+    private final int threshold;
+    private final List<File> runs = new ArrayList<>();
+    private List<Record> buffer = new ArrayList<>();
+    private List<Record> spilling;
+    private long count;
+    private long singletonCount;
+    private long singletonBytes;
+    private int runSequence;
+
+    /**
+     * @param directory 段文件所在的临时目录
+     * @param name      段文件名前缀
+     * @param threshold 内存中最多保留的记录数
+     */
+    public ExternalSorter(File directory, String name, int threshold) {
+        this.directory = directory;
+        this.name = name;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    /**
+     * 加入一条记录，内存记录数达到阈值时写出有序段文件。
+     * 写出时不持有锁，其他线程可以继续向新的缓冲区加入记录，直到新的缓冲区也写满
+     */
+    public void add(FileEntry entry, long hash) throws IOException {
+        List<Record> full = null;
+        synchronized (this) {
+            while (null != spilling && buffer.size() >= threshold) {
+                awaitSpill();
+            }
+            buffer.add(new Record(entry, hash));
+            count++;
+            if (buffer.size() >= threshold && null == spilling) {
+                full = buffer;
+                spilling = full;
+                buffer = new ArrayList<>();
+            }
+        }
+        if (null != full) {
+            File run = null;
+            try {
+                run = writeRun(full);
+            } finally {
+                synchronized (this) {
+                    if (null != run) {
+                        runs.add(run);
+                    }
+                    spilling = null;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待正在进行的段文件写出完成，调用方需持有本对象的锁
+     */
+    private void awaitSpill() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待段文件写出时被中断");
+        }
+    }
+
+    /**
+     * 按顺序输出所在分组包含两个及以上记录的文件，只在内存中保留前后两条记录。
+     * 只有一个记录的分组计入{@link #getSingletonCount()}和{@link #getSingletonBytes()}
+     */
+    public void forEachDuplicate(Consumer<FileEntry> action) throws IOException {
+        forEachGroup(new GroupVisitor() {
+            @Override
+            void first(Record record) {
+                // 分组出现第二条记录时才能确定第一条需要输出
+            }
+
+            @Override
+            void member(Record first, Record record, int index) {
+                if (index == 1) {
+                    action.accept(first.entry);
+                }
+                action.accept(record.entry);
+            }
+        });
+    }
+
+    /**
+     * 按顺序输出包含两个及以上记录的完整分组，分组本身需要放入内存
+     */
+    public void forEachGroup(Consumer<List<FileEntry>> action) throws IOException {
+        List<FileEntry> group = new ArrayList<>();
+        forEachGroup(new GroupVisitor() {
+            @Override
+            void first(Record record) {
+                if (group.size() > 1) {
+                    action.accept(new ArrayList<>(group));
+                }
+                group.clear();
+                group.add(record.entry);
+            }
+
+            @Override
+            void member(Record first, Record record, int index) {
+                group.add(record.entry);
+            }
+        });
+        if (group.size() > 1) {
+            action.accept(group);
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSingletonCount() {
+        return singletonCount;
+    }
+
+    public synchronized long getSingletonBytes() {
+        return singletonBytes;
+    }
+
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * 删除全部段文件
+     */
+    @Override
+    public synchronized void close() {
+        for (File run : runs) {
+            delete(run);
+        }
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+
+    /**
+     * 归并全部记录并按分组回调，只能调用一次
+     */
+    private void forEachGroup(GroupVisitor visitor) throws IOException {
+        List<Record> rest;
+        List<File> sorted;
+        synchronized (this) {
+            while (null != spilling) {
+                awaitSpill();
+            }
+            rest = buffer;
+            buffer = new ArrayList<>();
+            sorted = runs;
+            singletonCount = 0;
+            singletonBytes = 0;
+        }
+        if (!sorted.isEmpty() && !rest.isEmpty()) {
+            sorted.add(writeRun(rest));
+            rest = new ArrayList<>();
+        }
+        while (sorted.size() > MAX_FAN_IN) {
+            List<File> batch = new ArrayList<>(sorted.subList(0, MAX_FAN_IN));
+            sorted.subList(0, MAX_FAN_IN).clear();
+            // 已移出段列表，无论归并是否成功都在此删除
+            try (MergeIterator merged = new MergeIterator(batch)) {
+                sorted.add(writeRun(merged));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                batch.forEach(ExternalSorter::delete);
+            }
+        }
+        if (sorted.isEmpty()) {
+            rest.sort(ORDER);
+            visit(rest.iterator(), visitor);
+            return;
+        }
+        try (MergeIterator merged = new MergeIterator(sorted)) {
+            visit(merged, visitor);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void visit(Iterator<Record> records, GroupVisitor visitor) {
+        Record first = null;
+        int index = 0;
+        while (records.hasNext()) {
+            Record record = records.next();
+            if (null != first && ORDER.compare(first, record) == 0) {
+                visitor.member(first, record, ++index);
+                continue;
+            }
+            singleton(first, index);
+            first = record;
+            index = 0;
+            visitor.first(record);
+        }
+        singleton(first, index);
+    }
+
+    private synchronized void singleton(Record first, int index) {
+        if (null != first && index == 0) {
+            singletonCount++;
+            singletonBytes += first.entry.getSize();
+        }
+    }
+
+    private File writeRun(List<Record> records) throws IOException {
+        records.sort(ORDER);
+        return writeRun(records.iterator());
+    }
+
+    /**
+     * 按迭代顺序写出段文件，records需已有序
+     */
+    private File writeRun(Iterator<Record> records) throws IOException {
+        Utils.mkdirs(directory.getAbsolutePath());
+        File run = new File(directory, String.format("%s-%d-%d.run", name, System.identityHashCode(this), runSequence++));
+        long start = System.currentTimeMillis();
+        long written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run.toPath()), BUFFER_SIZE))) {
+            while (records.hasNext()) {
+                Record record = records.next();
+                FileEntry entry = record.entry;
+                out.writeLong(entry.getSize());
+                out.writeLong(record.hash);
+                out.writeLong(entry.getLastModified());
+                out.writeInt(entry.getFileKey());
+                out.writeInt(entry.getDevice());
+                out.writeUTF(entry.getPath().toString());
+                written++;
+            }
+        } catch (IOException e) {
+            delete(run);
+            throw e;
+        }
+        LOGGER.info("写出有序段文件：{}，记录数：{}，耗时：{}ms", run.getAbsolutePath(), written, System.currentTimeMillis() - start);
+        return run;
+    }
+
+    private static void delete(File run) {
+        try {
+            Files.deleteIfExists(run.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("删除段文件异常：{}", run.getAbsolutePath(), e);
+        }
+    }
+
+    private abstract static class GroupVisitor {
+        /**
+         * 新分组的第一条记录
+         */
+        abstract void first(Record record);
+
+        /**
+         * 分组的第index条记录(从1开始，不含第一条)
+         */
+        abstract void member(Record first, Record record, int index);
+    }
+
+    private static final class Record {
+        private final FileEntry entry;
+        private final long hash;
+
+        private Record(FileEntry entry, long hash) {
+            this.entry = entry;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * 段文件顺序读取
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private Record head;
+
+        private RunReader(File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.toPath()), BUFFER_SIZE));
+            advance();
+        }
+
+        private void advance() throws IOException {
+            long size;
+            try {
+                size = in.readLong();
+            } catch (EOFException e) {
+                head = null;
+                return;
+            }
+            long hash = in.readLong();
+            long lastModified = in.readLong();
+            int fileKey = in.readInt();
+            int device = in.readInt();
+            Path path = Paths.get(in.readUTF());
+            head = new Record(new FileEntry(path, size, lastModified, fileKey, device), hash);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 多路归并迭代器，读取异常时以UncheckedIOException抛出
+     */
+    private static final class MergeIterator implements Iterator<Record>, Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> ORDER.compare(a.head, b.head));
+
+        private MergeIterator(List<File> runs) throws IOException {
+            try {
+                for (File run : runs) {
+                    RunReader reader = new RunReader(run);
+                    readers.add(reader);
+                    if (null != reader.head) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Record next() {
+            RunReader reader = queue.poll();
+            Record record = Objects.requireNonNull(reader).head;
+            try {
+                reader.advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (null != reader.head) {
+                queue.add(reader);
+            }
+            return record;
+        }
+
+        @Override
+        public void close() {
+            for (RunReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.warn("关闭段文件异常", e);
+                }
+            }
+        }
+    }
+}
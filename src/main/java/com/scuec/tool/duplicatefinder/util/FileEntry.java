@@ -0,0 +1,100 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 遍历得到的文件及其属性，属性在遍历时读取一次后贯穿整个扫描流程，避免重复stat
+ */
+public class FileEntry {
+    public static final int NO_ID = -1;
+    private final Path path;
+    private final String suffix;
+    private final long size;
+    private final long lastModified;
+    private final int fileKey;
+    private final int device;
+    private int id = NO_ID;
+
+    public FileEntry(Path path, long size, long lastModified, Object fileKey) {
+        this(path, size, lastModified, null == fileKey ? 0 : fileKey.hashCode());
+    }
+
+    FileEntry(Path path, long size, long lastModified, int fileKey) {
+        this(path, size, lastModified, fileKey, DeviceTable.UNKNOWN);
+    }
+
+    FileEntry(Path path, long size, long lastModified, int fileKey, int device) {
+        this.path = path;
+        this.suffix = Utils.getFileSuffix(String.valueOf(path.getFileName()));
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+        this.device = device;
+    }
+
+    public static FileEntry of(Path path, BasicFileAttributes attributes) {
+        return new FileEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+    }
+
+    static FileEntry of(Path path, BasicFileAttributes attributes, int device) {
+        Object fileKey = attributes.fileKey();
+        return new FileEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                null == fileKey ? 0 : fileKey.hashCode(), device);
+    }
+
+    /**
+     * 文件在扫描索引{@link FileIndex}中的编号，未加入索引时为{@link #NO_ID}
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public File getFile() {
+        return path.toFile();
+    }
+
+    public String getAbsolutePath() {
+        return path.toAbsolutePath().toString();
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * 文件系统提供的唯一标识(如设备号+inode)的哈希值，不支持时为0
+     */
+    public int getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * 遍历时解析的所在设备编号，见{@link DeviceTable}，未解析时为{@link DeviceTable#UNKNOWN}
+     */
+    public int getDevice() {
+        return device;
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
@@ -0,0 +1,322 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 线程安全的文件分组，分组键为(后缀, 文件大小, 64位摘要)，后缀映射为int编号，键中不含字符串拼接。
+ * <p>
+ * 分组按键哈希分散到多个分段，每个分段是以基本类型数组实现的开放寻址哈希表，分组中只保存文件在
+ * {@link FileIndex}中的编号。分段锁内只做内存操作，不持有任何锁进行磁盘读写，多线程并发加入同一分组时不会丢失文件。
+ * <p>
+ * 加入文件时返回需要送入下一阶段的文件：分组内出现第二个文件时返回前两个文件，之后每次返回新加入的文件，
+ * 只有一个文件的分组中的文件永远不会被返回。
+ */
+public class FileGroups {
+    private static final FileEntry[] NONE = new FileEntry[0];
+    private static final int NO_SUFFIX = 0;
+    private static final int SEGMENT_BITS = 6;
+    private static final int NEW_GROUP = -1;
+    private static final int RELEASE_SELF = -2;
+    private final FileIndex index;
+    private final boolean keepMembers;
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final Map<String, Integer> suffixIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSuffixId = new AtomicInteger(NO_SUFFIX);
+
+    /**
+     * @param index       文件编号所属的索引
+     * @param keepMembers 是否保留分组内全部文件，只需要流式放行时不保留，仅记录第一个文件
+     */
+    public FileGroups(FileIndex index, boolean keepMembers) {
+        this.index = index;
+        this.keepMembers = keepMembers;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(keepMembers);
+        }
+    }
+
+    /**
+     * 将已加入索引的文件加入(后缀, 文件大小, hash)对应的分组
+     *
+     * @return 需要送入下一阶段的文件，可能为空数组
+     */
+    public FileEntry[] add(FileEntry entry, long hash) {
+        int suffixId = suffixId(entry.getSuffix());
+        long length = entry.getSize();
+        int mixed = mix(suffixId, length, hash);
+        Segment segment = segments[mixed >>> (Integer.SIZE - SEGMENT_BITS)];
+        int first;
+        synchronized (segment) {
+            first = segment.add(mixed, suffixId, length, hash, entry.getId());
+        }
+        if (first == NEW_GROUP) {
+            return NONE;
+        }
+        if (first == RELEASE_SELF) {
+            return new FileEntry[]{entry};
+        }
+        return new FileEntry[]{index.get(first), entry};
+    }
+
+    /**
+     * 遍历包含两个及以上文件的分组，需要保留分组成员。回调在分段锁外执行，可以阻塞
+     */
+    public void forEachDuplicate(Consumer<List<FileEntry>> action) {
+        for (Segment segment : segments) {
+            List<int[]> groups;
+            synchronized (segment) {
+                groups = segment.duplicates();
+            }
+            for (int[] ids : groups) {
+                List<FileEntry> group = new ArrayList<>(ids.length);
+                for (int id : ids) {
+                    group.add(index.get(id));
+                }
+                action.accept(Collections.unmodifiableList(group));
+            }
+        }
+    }
+
+    /**
+     * 只有一个文件的分组数量，所有文件加入完成后调用
+     */
+    public long singletonCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.singletonCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 只有一个文件的分组中文件的总大小，所有文件加入完成后调用
+     */
+    public long singletonBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.singletonBytes();
+            }
+        }
+        return bytes;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 分组占用的字节数(各分段数组)
+     */
+    public long footprint() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.footprint();
+            }
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private int suffixId(String suffix) {
+        if (null == suffix) {
+            return NO_SUFFIX;
+        }
+        return suffixIds.computeIfAbsent(suffix, s -> nextSuffixId.incrementAndGet());
+    }
+
+    private static int mix(int suffixId, long length, long hash) {
+        long h = (hash ^ length * 0x9E3779B97F4A7C15L ^ suffixId) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 开放寻址(线性探测)哈希表，count为0的槽为空槽；成员以链表形式保存在members/next数组中
+     */
+    private static final class Segment {
+        private static final int MIN_CAPACITY = 16;
+        private final boolean keepMembers;
+        private long[] lengths;
+        private long[] hashes;
+        private int[] suffixes;
+        private int[] firsts;
+        private int[] counts;
+        private int[] heads;
+        private int[] tails;
+        private int[] members;
+        private int[] next;
+        private int memberCount;
+        private int size;
+
+        private Segment(boolean keepMembers) {
+            this.keepMembers = keepMembers;
+            clear();
+        }
+
+        /**
+         * @return 新建分组时返回NEW_GROUP，分组已有两个及以上文件时返回RELEASE_SELF，否则返回分组第一个文件的编号
+         */
+        private int add(int mixed, int suffixId, long length, long hash, int id) {
+            int mask = counts.length - 1;
+            int slot = mixed & mask;
+            while (counts[slot] != 0
+                    && (lengths[slot] != length || hashes[slot] != hash || suffixes[slot] != suffixId)) {
+                slot = (slot + 1) & mask;
+            }
+            int result;
+            if (counts[slot] == 0) {
+                lengths[slot] = length;
+                hashes[slot] = hash;
+                suffixes[slot] = suffixId;
+                firsts[slot] = id;
+                if (keepMembers) {
+                    tails[slot] = -1;
+                }
+                size++;
+                result = NEW_GROUP;
+            } else {
+                result = counts[slot] == 1 ? firsts[slot] : RELEASE_SELF;
+            }
+            counts[slot]++;
+            if (keepMembers) {
+                appendMember(slot, id);
+            }
+            if (result == NEW_GROUP && size * 4 > counts.length * 3) {
+                rehash(counts.length * 2);
+            }
+            return result;
+        }
+
+        private void appendMember(int slot, int id) {
+            if (memberCount == members.length) {
+                members = Arrays.copyOf(members, memberCount * 2);
+                next = Arrays.copyOf(next, memberCount * 2);
+            }
+            int member = memberCount++;
+            members[member] = id;
+            next[member] = -1;
+            if (tails[slot] < 0) {
+                heads[slot] = member;
+            } else {
+                next[tails[slot]] = member;
+            }
+            tails[slot] = member;
+        }
+
+        private List<int[]> duplicates() {
+            List<int[]> groups = new ArrayList<>();
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] > 1) {
+                    int[] ids = new int[counts[slot]];
+                    int member = heads[slot];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = members[member];
+                        member = next[member];
+                    }
+                    groups.add(ids);
+                }
+            }
+            return groups;
+        }
+
+        private long singletonCount() {
+            long count = 0;
+            for (int c : counts) {
+                if (c == 1) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private long singletonBytes() {
+            long bytes = 0;
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] == 1) {
+                    bytes += lengths[slot];
+                }
+            }
+            return bytes;
+        }
+
+        private long footprint() {
+            long perSlot = 8 + 8 + 4 + 4 + 4 + (keepMembers ? 4 + 4 : 0);
+            return counts.length * perSlot + (keepMembers ? members.length * 8L : 0);
+        }
+
+        private void clear() {
+            allocate(MIN_CAPACITY);
+            if (keepMembers) {
+                members = new int[MIN_CAPACITY];
+                next = new int[MIN_CAPACITY];
+            }
+            memberCount = 0;
+            size = 0;
+        }
+
+        private void allocate(int capacity) {
+            lengths = new long[capacity];
+            hashes = new long[capacity];
+            suffixes = new int[capacity];
+            firsts = new int[capacity];
+            counts = new int[capacity];
+            if (keepMembers) {
+                heads = new int[capacity];
+                tails = new int[capacity];
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] oldLengths = lengths;
+            long[] oldHashes = hashes;
+            int[] oldSuffixes = suffixes;
+            int[] oldFirsts = firsts;
+            int[] oldCounts = counts;
+            int[] oldHeads = heads;
+            int[] oldTails = tails;
+            allocate(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldCounts.length; i++) {
+                if (oldCounts[i] == 0) {
+                    continue;
+                }
+                int slot = mix(oldSuffixes[i], oldLengths[i], oldHashes[i]) & mask;
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                lengths[slot] = oldLengths[i];
+                hashes[slot] = oldHashes[i];
+                suffixes[slot] = oldSuffixes[i];
+                firsts[slot] = oldFirsts[i];
+                counts[slot] = oldCounts[i];
+                if (keepMembers) {
+                    heads[slot] = oldHeads[i];
+                    tails[slot] = oldTails[i];
+                }
+            }
+        }
+    }
+}
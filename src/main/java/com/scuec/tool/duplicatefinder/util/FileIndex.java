@@ -0,0 +1,217 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.hash.XxHash64Hasher;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 紧凑的扫描索引，为每个遍历到的文件分配int编号，分组结构中只保存编号，需要时再还原为{@link FileEntry}。
+ * <p>
+ * 文件记录为定长32字节(大小、修改时间、文件名引用、目录编号、文件标识)，
+ * 文件名和目录路径以UTF-8字节存放在分页缓冲区中，同一目录的路径及所在设备只保存一次，
+ * 缓冲区可以在堆外，千万级文件时不产生大量Path、String、File对象。
+ */
+public class FileIndex {
+    private static final int RECORD_SIZE = 32;
+    private static final int DIRECTORY_RECORD_SIZE = 16;
+    private static final int NAME_LENGTH_BITS = 16;
+    private static final int MAX_NAME_LENGTH = (1 << NAME_LENGTH_BITS) - 1;
+    private static final int NO_DIRECTORY = -1;
+
+    private final ThreadLocal<DirectoryCache> directoryCache = ThreadLocal.withInitial(DirectoryCache::new);
+    private final XxHash64Hasher directoryHasher = new XxHash64Hasher();
+    private final LongIntMap directoryIds = new LongIntMap();
+    private final Map<String, Integer> collidedDirectories = new HashMap<>();
+    private volatile PagedBuffer records;
+    private volatile PagedBuffer names;
+    private volatile PagedBuffer directories;
+    private volatile int generation;
+    private int fileCount;
+    private int directoryCount;
+
+    public FileIndex() {
+        this(false);
+    }
+
+    public FileIndex(boolean offHeap) {
+        reset(offHeap);
+    }
+
+    /**
+     * 清空索引，之前分配的编号全部失效
+     *
+     * @param offHeap 是否使用堆外内存存放记录和路径
+     */
+    public synchronized void reset(boolean offHeap) {
+        records = new PagedBuffer(offHeap);
+        names = new PagedBuffer(offHeap);
+        directories = new PagedBuffer(offHeap);
+        directoryIds.clear();
+        collidedDirectories.clear();
+        fileCount = 0;
+        directoryCount = 0;
+        generation++;
+    }
+
+    public void clear() {
+        reset(records.isDirect());
+    }
+
+    /**
+     * 将文件加入索引并设置其编号
+     *
+     * @return 文件编号
+     */
+    public int add(FileEntry entry) {
+        int id = store(entry);
+        entry.setId(id);
+        return id;
+    }
+
+    /**
+     * 将文件加入索引但不修改文件原有的编号，用于把其他索引中的文件转存到本索引
+     *
+     * @return 文件在本索引中的编号
+     */
+    int store(FileEntry entry) {
+        Path path = entry.getPath();
+        int directoryId = directoryId(path.getParent(), entry.getDevice());
+        byte[] name = String.valueOf(path.getFileName()).getBytes(StandardCharsets.UTF_8);
+        int id;
+        synchronized (this) {
+            long nameRef = append(name);
+            id = fileCount++;
+            long base = (long) id * RECORD_SIZE;
+            records.allocate(RECORD_SIZE);
+            records.putLong(base, entry.getSize());
+            records.putLong(base + 8, entry.getLastModified());
+            records.putLong(base + 16, nameRef);
+            records.putInt(base + 24, directoryId);
+            records.putInt(base + 28, entry.getFileKey());
+        }
+        return id;
+    }
+
+    /**
+     * 按编号还原文件，调用方需保证编号由{@link #add(FileEntry)}返回且之后未调用reset
+     */
+    public FileEntry get(int id) {
+        PagedBuffer records = this.records;
+        long base = (long) id * RECORD_SIZE;
+        String name = string(records.getLong(base + 16));
+        int directoryId = records.getInt(base + 24);
+        Path path;
+        int device;
+        if (directoryId == NO_DIRECTORY) {
+            path = Paths.get(name);
+            device = DeviceTable.UNKNOWN;
+        } else {
+            long directoryBase = (long) directoryId * DIRECTORY_RECORD_SIZE;
+            path = Paths.get(string(directories.getLong(directoryBase)), name);
+            device = directories.getInt(directoryBase + 8);
+        }
+        FileEntry entry = new FileEntry(path, records.getLong(base), records.getLong(base + 8), records.getInt(base + 28), device);
+        entry.setId(id);
+        return entry;
+    }
+
+    public synchronized int size() {
+        return fileCount;
+    }
+
+    public synchronized int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    /**
+     * 索引占用的字节数，包括已分配的全部缓冲页及目录哈希表
+     */
+    public synchronized long footprint() {
+        return records.capacity() + names.capacity() + directories.capacity() + directoryIds.footprint();
+    }
+
+    public boolean isOffHeap() {
+        return records.isDirect();
+    }
+
+    /**
+     * 同一目录下的文件通常由同一线程连续遍历，先查线程内缓存的上一个目录，未命中时再查全局目录表。
+     * 同一目录下的文件位于同一设备，设备编号随目录首次加入时记录
+     */
+    private int directoryId(Path directory, int device) {
+        if (null == directory) {
+            return NO_DIRECTORY;
+        }
+        DirectoryCache cache = directoryCache.get();
+        if (cache.generation == generation && directory.equals(cache.directory)) {
+            return cache.id;
+        }
+        String value = directory.toString();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int id;
+        synchronized (this) {
+            directoryHasher.reset();
+            directoryHasher.update(bytes, 0, bytes.length);
+            long hash = directoryHasher.getValue();
+            id = directoryIds.get(hash);
+            if (id == LongIntMap.MISSING) {
+                id = newDirectory(bytes, device);
+                directoryIds.put(hash, id);
+            } else if (!nameEquals(directories.getLong((long) id * DIRECTORY_RECORD_SIZE), bytes)) {
+                // 64位哈希碰撞时退回字符串表
+                Integer collided = collidedDirectories.get(value);
+                if (null == collided) {
+                    collided = newDirectory(bytes, device);
+                    collidedDirectories.put(value, collided);
+                }
+                id = collided;
+            }
+            cache.generation = generation;
+        }
+        cache.directory = directory;
+        cache.id = id;
+        return id;
+    }
+
+    private int newDirectory(byte[] bytes, int device) {
+        int id = directoryCount++;
+        long base = directories.allocate(DIRECTORY_RECORD_SIZE);
+        directories.putLong(base, append(bytes));
+        directories.putInt(base + 8, device);
+        return id;
+    }
+
+    /**
+     * 追加UTF-8字节，返回引用：高48位为偏移量，低16位为长度
+     */
+    private long append(byte[] bytes) {
+        if (bytes.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("路径过长：" + new String(bytes, StandardCharsets.UTF_8));
+        }
+        long offset = names.allocate(bytes.length);
+        names.put(offset, bytes, bytes.length);
+        return offset << NAME_LENGTH_BITS | bytes.length;
+    }
+
+    private boolean nameEquals(long ref, byte[] bytes) {
+        int length = (int) (ref & MAX_NAME_LENGTH);
+        return length == bytes.length && names.equals(ref >>> NAME_LENGTH_BITS, bytes, length);
+    }
+
+    private String string(long ref) {
+        int length = (int) (ref & MAX_NAME_LENGTH);
+        byte[] bytes = new byte[length];
+        names.get(ref >>> NAME_LENGTH_BITS, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class DirectoryCache {
+        private int generation;
+        private Path directory;
+        private int id;
+    }
+}
@@ -0,0 +1,96 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * 以硬链接或写时复制(reflink)替换重复文件，保留全部路径而内容只存储一份。
+ * <p>
+ * 先在重复文件所在目录创建指向保留文件的临时链接，紧接着逐字节比对两个文件，
+ * 一致时用原子重命名覆盖重复文件；任一步失败都只留下原文件。
+ * reflink通过GNU coreutils的cp实现，只能在Linux上使用。
+ */
+public class FileLinker {
+    private static final String TEMP_PREFIX = ".finder-link-";
+    private final ChannelIO channelIO = new ChannelIO(0);
+
+    /**
+     * 把重复文件替换为保留文件的硬链接，两者必须在同一文件系统
+     *
+     * @return 释放的字节数，重复文件原本还有其他硬链接时为0
+     */
+    public long link(Path first, Path duplicate) throws IOException {
+        return replace(first, duplicate, false);
+    }
+
+    /**
+     * 把重复文件替换为保留文件的reflink副本(GNU cp --reflink=always)，仅支持Linux上btrfs、xfs等支持写时复制的文件系统，
+     * 其他平台的cp不支持该参数，替换失败。
+     * 与硬链接不同，之后修改其中一个文件不会影响另一个
+     *
+     * @return 释放的字节数(按重复文件大小估算)，重复文件原本还有其他硬链接时为0
+     */
+    public long reflink(Path first, Path duplicate) throws IOException {
+        return replace(first, duplicate, true);
+    }
+
+    private long replace(Path first, Path duplicate, boolean reflink) throws IOException {
+        if (Files.isSameFile(first, duplicate)) {
+            return 0;
+        }
+        long size = Files.size(duplicate);
+        // 重复文件还有其他硬链接时内容仍被引用，两种方式都不释放空间
+        long reclaimed = linkCount(duplicate) <= 1 ? size : 0;
+        Path temp = duplicate.resolveSibling(TEMP_PREFIX + UUID.randomUUID());
+        try {
+            if (reflink) {
+                cloneFile(first, temp);
+            } else {
+                Files.createLink(temp, first);
+            }
+            // 比对的是临时文件本身，替换进去的正是比对过的内容
+            if (Files.size(duplicate) != size || !channelIO.contentEquals(temp, duplicate)) {
+                throw new IOException("文件内容不一致：" + first + " , " + duplicate);
+            }
+            Files.move(temp, duplicate, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return reclaimed;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 文件的硬链接数，文件系统不支持unix属性时返回1
+     */
+    private static int linkCount(Path file) {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    private static void cloneFile(Path source, Path target) throws IOException {
+        Process process = new ProcessBuilder("cp", "--reflink=always", "--preserve=mode,timestamps",
+                source.toString(), target.toString()).redirectErrorStream(true).start();
+        // cp只在失败时输出一行错误信息，读到结束即进程退出
+        String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8).trim();
+        int exitValue;
+        try {
+            exitValue = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("reflink被中断：" + source, e);
+        }
+        if (exitValue != 0) {
+            throw new IOException("reflink失败：" + source + " -> " + target + "，" + output);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持久化的文件摘要缓存，以(路径, 大小, 修改时间, 文件标识)判断文件是否变化，
+ * 未变化的文件直接复用上次扫描的部分摘要和全量摘要，无需再次读取。
+ * 文件标识取{@link FileEntry#getFileKey()}，同一设备上即inode，原地替换为新文件时随之变化。
+ * <p>
+ * 缓存为紧凑的二进制格式：文件头记录算法及部分摘要参数，参数变化时整个缓存失效；
+ * 之后逐条记录路径、大小、修改时间、文件标识及摘要。
+ * 遍历时用已读取的文件属性标记仍然存在且未变化的记录，保存时剔除扫描目录下未被标记的记录，
+ * 不再逐个读取文件属性；其他目录的记录原样保留。
+ */
+public class HashCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashCache.class);
+    private static final int MAGIC = 0x44464843; // DFHC
+    private static final int VERSION = 3;
+    private static final byte FLAG_PARTIAL = 1;
+    private static final byte FLAG_FULL = 2;
+
+    private final File cacheFile;
+    private final HashAlgorithmEnum algorithm;
+    private final int blockSize;
+    private final int sampleCount;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public HashCache(File cacheFile, HashAlgorithmEnum algorithm, int blockSize, int sampleCount) {
+        this.cacheFile = cacheFile;
+        this.algorithm = algorithm;
+        this.blockSize = blockSize;
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * 从磁盘加载缓存，文件不存在、格式不符或摘要参数变化时从空缓存开始
+     */
+    public void load() {
+        entries.clear();
+        loaded = true;
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath()), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !Objects.equals(in.readUTF(), String.valueOf(algorithm))
+                    || in.readInt() != blockSize || in.readInt() != sampleCount) {
+                LOGGER.info("摘要缓存版本或参数已变化，忽略缓存文件：{}", cacheFile.getAbsolutePath());
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                Entry entry = new Entry(in.readLong(), in.readLong(), in.readInt());
+                byte flags = in.readByte();
+                long partialHash = in.readLong();
+                long fullHash = in.readLong();
+                if ((flags & FLAG_PARTIAL) != 0) {
+                    entry.setPartialHash(partialHash);
+                }
+                if ((flags & FLAG_FULL) != 0) {
+                    entry.setFullHash(fullHash);
+                }
+                entries.put(path, entry);
+            }
+            LOGGER.info("摘要缓存加载完成，条数：{}，耗时：{}ms", count, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            LOGGER.warn("摘要缓存加载异常，忽略缓存文件：{}", cacheFile.getAbsolutePath(), e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * 获取文件对应的缓存记录，文件变化时返回一条新的空记录，未加载缓存时返回null
+     */
+    public Entry get(FileEntry file) {
+        if (!loaded) {
+            return null;
+        }
+        String path = file.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (null == entry || !entry.matches(file)) {
+            entry = new Entry(file.getSize(), file.getLastModified(), file.getFileKey());
+            entries.put(path, entry);
+        }
+        entry.touched = true;
+        return entry;
+    }
+
+    /**
+     * 遍历到文件时调用：记录未变化时标记为仍然有效，文件已变化时删除记录
+     */
+    public void touch(FileEntry file) {
+        if (!loaded) {
+            return;
+        }
+        String path = file.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (null == entry) {
+            return;
+        }
+        if (entry.matches(file)) {
+            entry.touched = true;
+        } else {
+            entries.remove(path, entry);
+        }
+    }
+
+    /**
+     * 保存缓存到磁盘
+     *
+     * @param roots    本次扫描的目录
+     * @param complete 扫描是否完整结束，未完整结束时不剔除记录
+     */
+    public void save(List<String> roots, boolean complete) {
+        if (!loaded) {
+            return;
+        }
+        if (complete) {
+            evict(roots);
+        }
+        Path target = cacheFile.toPath();
+        Path temp = null;
+        try {
+            Utils.mkdirs(cacheFile.getParent());
+            // 多个进程同时保存时各自写入独立的临时文件，最后一次重命名生效
+            temp = Files.createTempFile(target.toAbsolutePath().getParent(), cacheFile.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(String.valueOf(algorithm));
+                out.writeInt(blockSize);
+                out.writeInt(sampleCount);
+                // 遍历期间不再有写入，记录数与实际写出一致
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                    Entry entry = item.getValue();
+                    out.writeUTF(item.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modified);
+                    out.writeInt(entry.fileKey);
+                    out.writeByte((entry.hasPartialHash ? FLAG_PARTIAL : 0) | (entry.hasFullHash ? FLAG_FULL : 0));
+                    out.writeLong(entry.partialHash);
+                    out.writeLong(entry.fullHash);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.info("摘要缓存保存完成，条数：{}", entries.size());
+        } catch (IOException e) {
+            LOGGER.warn("摘要缓存保存异常：{}", cacheFile.getAbsolutePath(), e);
+        } finally {
+            deleteTemp(temp);
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        if (null == temp) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOGGER.debug("摘要缓存临时文件删除失败：{}", temp, e);
+        }
+    }
+
+    /**
+     * 剔除扫描目录下本次遍历未标记的记录(文件已删除、已变化或已不在扫描范围内)
+     */
+    private void evict(List<String> roots) {
+        String[] prefixes = roots.stream()
+                .map(root -> new File(root).getAbsolutePath())
+                .map(root -> root.endsWith(File.separator) ? root : root + File.separator)
+                .toArray(String[]::new);
+        int before = entries.size();
+        entries.entrySet().removeIf(item -> !item.getValue().touched && underRoots(item.getKey(), prefixes));
+        LOGGER.info("摘要缓存剔除已删除或已变化的记录：{}", before - entries.size());
+    }
+
+    private static boolean underRoots(String path, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 单个文件的缓存记录，同一文件同一时间只会被一个扫描线程处理
+     */
+    public static class Entry {
+        private final long size;
+        private final long modified;
+        private final int fileKey;
+        private volatile boolean touched;
+        private volatile boolean hasPartialHash;
+        private volatile long partialHash;
+        private volatile boolean hasFullHash;
+        private volatile long fullHash;
+
+        private Entry(long size, long modified, int fileKey) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+        }
+
+        private boolean matches(FileEntry file) {
+            return size == file.getSize() && modified == file.getLastModified() && fileKey == file.getFileKey();
+        }
+
+        public boolean hasPartialHash() {
+            return hasPartialHash;
+        }
+
+        public long getPartialHash() {
+            return partialHash;
+        }
+
+        public void setPartialHash(long partialHash) {
+            this.partialHash = partialHash;
+            this.hasPartialHash = true;
+        }
+
+        public boolean hasFullHash() {
+            return hasFullHash;
+        }
+
+        public long getFullHash() {
+            return fullHash;
+        }
+
+        public void setFullHash(long fullHash) {
+            this.fullHash = fullHash;
+            this.hasFullHash = true;
+        }
+    }
+}
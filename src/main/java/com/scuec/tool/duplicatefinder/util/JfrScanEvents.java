@@ -0,0 +1,117 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 自定义JFR事件，只能经由{@link ScanEvents}在运行时支持JFR时加载
+ */
+final class JfrScanEvents {
+    private static final String CATEGORY = "Duplicate Finder";
+
+    private JfrScanEvents() {
+    }
+
+    static Object beginScan() {
+        ScanEvent event = new ScanEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endScan(Object handle, String dirs, long files, long duplicates, long bytesRead, boolean cancelled) {
+        ScanEvent event = (ScanEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.dirs = dirs;
+            event.files = files;
+            event.duplicates = duplicates;
+            event.bytesRead = bytesRead;
+            event.cancelled = cancelled;
+            event.commit();
+        }
+    }
+
+    static void stage(String stage, long input, long output, long savedBytes) {
+        StageEvent event = new StageEvent();
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.input = input;
+            event.output = output;
+            event.savedBytes = savedBytes;
+            event.commit();
+        }
+    }
+
+    static Object beginRead() {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endRead(Object handle, String stage, FileEntry entry, long bytes) {
+        FileReadEvent event = (FileReadEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.path = entry.getAbsolutePath();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    @Name("com.scuec.tool.duplicatefinder.Scan")
+    @Label("Duplicate Scan")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class ScanEvent extends Event {
+        @Label("Directories")
+        String dirs;
+        @Label("Files")
+        long files;
+        @Label("Duplicates")
+        long duplicates;
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+        @Label("Cancelled")
+        boolean cancelled;
+    }
+
+    @Name("com.scuec.tool.duplicatefinder.Stage")
+    @Label("Scan Stage Completed")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+        @Label("Input Files")
+        long input;
+        @Label("Output Files")
+        long output;
+        @Label("Bytes Avoided")
+        @DataAmount
+        long savedBytes;
+    }
+
+    @Name("com.scuec.tool.duplicatefinder.FileRead")
+    @Label("File Read")
+    @Description("部分摘要、全量摘要或内容比对中单次读取较慢的文件")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static class FileReadEvent extends Event {
+        @Label("Stage")
+        String stage;
+        @Label("Path")
+        String path;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,112 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 按页分配的只追加字节存储，页可以在堆内或堆外，以long偏移量寻址。
+ * <p>
+ * 追加需要外部同步；读取不加锁，调用方需保证读取的偏移量已通过队列等同步手段从写入线程传递过来。
+ */
+final class PagedBuffer {
+    static final int PAGE_SHIFT = 20;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final boolean direct;
+    private volatile ByteBuffer[] pages = new ByteBuffer[0];
+    private long position;
+
+    PagedBuffer(boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * 分配连续的length个字节，不跨页
+     *
+     * @return 起始偏移量
+     */
+    long allocate(int length) {
+        int offset = (int) (position & PAGE_MASK);
+        if (offset + length > PAGE_SIZE) {
+            position += PAGE_SIZE - offset;
+        }
+        long start = position;
+        int index = (int) (start >>> PAGE_SHIFT);
+        ByteBuffer[] current = pages;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(4, current.length * 2));
+        }
+        if (null == current[index]) {
+            current[index] = direct ? ByteBuffer.allocateDirect(PAGE_SIZE) : ByteBuffer.allocate(PAGE_SIZE);
+            pages = current;
+        }
+        position = start + length;
+        return start;
+    }
+
+    void putLong(long offset, long value) {
+        page(offset).putLong((int) (offset & PAGE_MASK), value);
+    }
+
+    long getLong(long offset) {
+        return page(offset).getLong((int) (offset & PAGE_MASK));
+    }
+
+    void putInt(long offset, int value) {
+        page(offset).putInt((int) (offset & PAGE_MASK), value);
+    }
+
+    int getInt(long offset) {
+        return page(offset).getInt((int) (offset & PAGE_MASK));
+    }
+
+    void put(long offset, byte[] bytes, int length) {
+        ByteBuffer page = page(offset).duplicate();
+        page.position((int) (offset & PAGE_MASK));
+        page.put(bytes, 0, length);
+    }
+
+    void get(long offset, byte[] bytes, int length) {
+        ByteBuffer page = page(offset).duplicate();
+        page.position((int) (offset & PAGE_MASK));
+        page.get(bytes, 0, length);
+    }
+
+    boolean equals(long offset, byte[] bytes, int length) {
+        ByteBuffer page = page(offset);
+        int base = (int) (offset & PAGE_MASK);
+        for (int i = 0; i < length; i++) {
+            if (page.get(base + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 已分配的页占用的字节数
+     */
+    long capacity() {
+        long count = 0;
+        for (ByteBuffer page : pages) {
+            if (null != page) {
+                count++;
+            }
+        }
+        return count * PAGE_SIZE;
+    }
+
+    boolean isDirect() {
+        return direct;
+    }
+
+    void clear() {
+        pages = new ByteBuffer[0];
+        position = 0;
+    }
+
+    private ByteBuffer page(long offset) {
+        return pages[(int) (offset >>> PAGE_SHIFT)];
+    }
+}
@@ -0,0 +1,142 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 流水线中的一个阶段：有界队列加独立的工作线程。
+ * 队列满时上游阻塞等待(背压)，各阶段线程数独立配置，元数据密集型和读取密集型工作可分别调优。
+ *
+ * @param <T> 阶段处理的数据类型
+ */
+public class PipelineStage<T> implements Stage<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineStage.class);
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final Consumer<T> handler;
+    private final Tracker tracker;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * @param name     阶段名称，用于线程命名
+     * @param threads  工作线程数
+     * @param capacity 队列容量
+     * @param handler  处理逻辑，可以向下游阶段提交数据，但不能向上游提交，否则可能死锁
+     * @param tracker  整条流水线共用的未完成任务计数
+     */
+    public PipelineStage(String name, int threads, int capacity, Consumer<T> handler, Tracker tracker) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        this.handler = handler;
+        this.tracker = tracker;
+        for (int i = 0; i < Math.max(threads, 1); i++) {
+            Thread worker = new Thread(this::work, "duplicate-finder-" + name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+    }
+
+    public PipelineStage<T> start() {
+        workers.forEach(Thread::start);
+        return this;
+    }
+
+    @Override
+    public void put(T item) throws InterruptedException {
+        tracker.increment();
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            tracker.decrement();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean offer(T item) {
+        tracker.increment();
+        if (queue.offer(item)) {
+            return true;
+        }
+        tracker.decrement();
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void work() {
+        while (!closed || !queue.isEmpty()) {
+            T item;
+            try {
+                item = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (null == item) {
+                continue;
+            }
+            try {
+                handler.accept(item);
+            } catch (CancellationException e) {
+                LOGGER.debug("{} 阶段处理已取消", name);
+            } catch (Throwable t) {
+                LOGGER.warn("{} 阶段处理异常", name, t);
+            } finally {
+                tracker.decrement();
+            }
+        }
+    }
+
+    /**
+     * 整条流水线的未完成任务计数，数据提交时加一、处理完成时减一。
+     * 处理逻辑只会在完成前向下游提交数据，因此上游结束后计数归零即全部完成
+     */
+    public static class Tracker {
+        private final AtomicLong pending = new AtomicLong(0);
+
+        void increment() {
+            pending.incrementAndGet();
+        }
+
+        void decrement() {
+            if (pending.decrementAndGet() == 0) {
+                synchronized (pending) {
+                    pending.notifyAll();
+                }
+            }
+        }
+
+        public long getPending() {
+            return pending.get();
+        }
+
+        public void awaitIdle() throws InterruptedException {
+            synchronized (pending) {
+                while (pending.get() > 0) {
+                    pending.wait(100);
+                }
+            }
+        }
+    }
+}
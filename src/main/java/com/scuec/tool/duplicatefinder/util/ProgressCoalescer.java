@@ -0,0 +1,91 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进度合并：各线程只更新最新的已处理数和总数，由单个线程按固定间隔通知一次，
+ * 两次通知之间的变化合并为一次增量。通知串行执行，数值单调不减。
+ * 间隔小于等于0时每次更新立即在调用线程通知
+ */
+public class ProgressCoalescer {
+    private final long intervalMillis;
+    private final ProgressCallback callback;
+    private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong total = new AtomicLong(0);
+    private ScheduledExecutorService timer;
+    private long deliveredProcessed = -1;
+    private long deliveredTotal = -1;
+
+    public ProgressCoalescer(long intervalMillis, ProgressCallback callback) {
+        this.intervalMillis = intervalMillis;
+        this.callback = callback;
+    }
+
+    public synchronized void start() {
+        if (intervalMillis <= 0 || null != timer) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "duplicate-finder-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void processed(long count) {
+        processed.accumulateAndGet(count, Math::max);
+        if (intervalMillis <= 0) {
+            flush();
+        }
+    }
+
+    public void total(long count) {
+        total.accumulateAndGet(count, Math::max);
+        if (intervalMillis <= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * 有变化时立即通知一次
+     */
+    public synchronized void flush() {
+        long currentProcessed = processed.get();
+        long currentTotal = total.get();
+        if (currentProcessed == deliveredProcessed && currentTotal == deliveredTotal) {
+            return;
+        }
+        long delta = currentProcessed - Math.max(deliveredProcessed, 0);
+        deliveredProcessed = currentProcessed;
+        deliveredTotal = currentTotal;
+        callback.progress(currentProcessed, currentTotal, delta);
+    }
+
+    /**
+     * 通知最后一次进度并结束定时线程
+     */
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = timer;
+            timer = null;
+        }
+        if (null != executor) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public interface ProgressCallback {
+        void progress(long processed, long total, long delta);
+    }
+}
@@ -0,0 +1,49 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.ScanStageEnum;
+
+/**
+ * JFR事件入口。项目以Java 9编译，运行时没有jdk.jfr模块时全部调用直接返回，
+ * 只有确认可用后才会加载{@link JfrScanEvents}
+ */
+final class ScanEvents {
+    private static final boolean ENABLED = isAvailable();
+
+    private ScanEvents() {
+    }
+
+    static Object beginScan() {
+        return ENABLED ? JfrScanEvents.beginScan() : null;
+    }
+
+    static void endScan(Object handle, String dirs, long files, long duplicates, long bytesRead, boolean cancelled) {
+        if (null != handle) {
+            JfrScanEvents.endScan(handle, dirs, files, duplicates, bytesRead, cancelled);
+        }
+    }
+
+    static void stage(ScanStageEnum stage, long input, long output, long savedBytes) {
+        if (ENABLED) {
+            JfrScanEvents.stage(stage.name(), input, output, savedBytes);
+        }
+    }
+
+    static Object beginRead() {
+        return ENABLED ? JfrScanEvents.beginRead() : null;
+    }
+
+    static void endRead(Object handle, ScanStageEnum stage, FileEntry entry, long bytes) {
+        if (null != handle) {
+            JfrScanEvents.endRead(handle, stage.name(), entry, bytes);
+        }
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ScanEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步扫描的句柄。
+ * <p>
+ * {@link #getFuture()}在扫描结束后以{@link ScanResult}完成，扫描异常时异常完成；
+ * 调用{@link #cancel()}或直接取消该Future都会停止扫描，正在读取的文件在下一块之前中断。
+ * Future被直接取消时会立即结束，扫描线程及各阶段线程的退出需通过{@link #awaitTermination()}等待。
+ */
+public class ScanHandle {
+    private final CompletableFuture<ScanResult> future;
+    private final Runnable canceller;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    ScanHandle(CompletableFuture<ScanResult> future, Runnable canceller) {
+        this.future = future;
+        this.canceller = canceller;
+        future.whenComplete((result, t) -> {
+            if (future.isCancelled()) {
+                canceller.run();
+            }
+        });
+    }
+
+    /**
+     * 已经结束的句柄，用于无法开始扫描的情况
+     */
+    static ScanHandle failed(Throwable cause) {
+        CompletableFuture<ScanResult> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        ScanHandle handle = new ScanHandle(future, () -> {
+        });
+        handle.terminate();
+        return handle;
+    }
+
+    public CompletableFuture<ScanResult> getFuture() {
+        return future;
+    }
+
+    /**
+     * 停止扫描，Future随后以isCancelled为true的结果完成
+     */
+    public void cancel() {
+        canceller.run();
+    }
+
+    /**
+     * 扫描线程及各阶段线程是否均已退出
+     */
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    void complete(ScanResult result) {
+        future.complete(result);
+    }
+
+    void completeExceptionally(Throwable t) {
+        future.completeExceptionally(t);
+    }
+
+    void terminate() {
+        terminated.countDown();
+    }
+}
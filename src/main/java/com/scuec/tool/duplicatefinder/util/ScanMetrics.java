@@ -0,0 +1,337 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.ScanStageEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * 扫描指标：计数器由各阶段线程并发累加，队列积压在读取时采样，
+ * 可以通过{@link #snapshot()}取得某一时刻的快照，也可以通过JMX在扫描期间实时查看
+ */
+public class ScanMetrics implements ScanMetricsMXBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanMetrics.class);
+    private static final String OBJECT_NAME = "com.scuec.tool.duplicatefinder:type=Scan,id=";
+    private static final AtomicLong SEQUENCE = new AtomicLong(0);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final LongAdder filesWalked = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesHashed = new LongAdder();
+    private final LongAdder bytesAvoided = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder duplicateCount = new LongAdder();
+    private final Map<ScanStageEnum, LatencyHistogram> latencies = new EnumMap<>(ScanStageEnum.class);
+    private final Map<String, IntSupplier> queues = new ConcurrentHashMap<>();
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private ObjectName objectName;
+
+    public ScanMetrics() {
+        for (ScanStageEnum stage : new ScanStageEnum[]{ScanStageEnum.PARTIAL, ScanStageEnum.HASH, ScanStageEnum.VERIFY}) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * 清空全部指标并开始计时
+     */
+    public void start() {
+        filesWalked.reset();
+        bytesRead.reset();
+        bytesHashed.reset();
+        bytesAvoided.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        duplicateCount.reset();
+        latencies.values().forEach(LatencyHistogram::reset);
+        queues.clear();
+        endNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    void walked() {
+        filesWalked.increment();
+    }
+
+    /**
+     * 一次摘要计算读取的字节数，部分摘要只计入实际读取的块
+     */
+    void hashed(long bytes) {
+        bytesHashed.add(bytes);
+        bytesRead.add(bytes);
+    }
+
+    void verified(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    void avoided(long bytes) {
+        bytesAvoided.add(bytes);
+    }
+
+    void cache(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    void duplicate() {
+        duplicateCount.increment();
+    }
+
+    void latency(ScanStageEnum stage, long nanos) {
+        LatencyHistogram histogram = latencies.get(stage);
+        if (null != histogram) {
+            histogram.record(nanos);
+        }
+    }
+
+    /**
+     * 登记一个阶段的队列，读取指标时采样积压数量
+     */
+    void queue(String name, IntSupplier depth) {
+        queues.put(name, depth);
+    }
+
+    public LatencyHistogram getLatency(ScanStageEnum stage) {
+        return latencies.get(stage);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * 注册到平台MBeanServer，注册失败时只记录日志
+     */
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME + SEQUENCE.incrementAndGet());
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException | RuntimeException e) {
+            LOGGER.debug("扫描指标MBean注册失败", e);
+        }
+    }
+
+    void unregister() {
+        ObjectName name = objectName;
+        objectName = null;
+        if (null == name) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException | RuntimeException e) {
+            LOGGER.debug("扫描指标MBean注销失败", e);
+        }
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endNanos;
+        return ((end == 0 ? System.nanoTime() : end) - start) / 1_000_000;
+    }
+
+    @Override
+    public long getFilesWalked() {
+        return filesWalked.sum();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return rate(getFilesWalked(), getElapsedMillis());
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesHashed() {
+        return bytesHashed.sum();
+    }
+
+    @Override
+    public double getBytesHashedPerSecond() {
+        return rate(getBytesHashed(), getElapsedMillis());
+    }
+
+    @Override
+    public long getBytesAvoided() {
+        return bytesAvoided.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return hitRate(getCacheHits(), getCacheMisses());
+    }
+
+    @Override
+    public long getDuplicateCount() {
+        return duplicateCount.sum();
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        queues.forEach((name, depth) -> depths.put(name, depth.getAsInt()));
+        return depths;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        latencies.forEach((stage, histogram) -> {
+            for (double percentile : PERCENTILES) {
+                millis.put(stage + ".p" + (int) percentile, histogram.percentile(percentile) / NANOS_PER_MILLI);
+            }
+            millis.put(stage + ".max", histogram.getMax() / NANOS_PER_MILLI);
+        });
+        return millis;
+    }
+
+    private static double rate(long amount, long millis) {
+        return millis <= 0 ? 0 : amount * 1000.0 / millis;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * 某一时刻的指标快照，创建后不再变化
+     */
+    public static class Snapshot implements ScanMetricsMXBean {
+        private final long elapsedMillis;
+        private final long filesWalked;
+        private final long bytesRead;
+        private final long bytesHashed;
+        private final long bytesAvoided;
+        private final long cacheHits;
+        private final long cacheMisses;
+        private final long duplicateCount;
+        private final Map<String, Integer> queueDepths;
+        private final Map<String, Double> latencyMillis;
+
+        private Snapshot(ScanMetrics metrics) {
+            this.elapsedMillis = metrics.getElapsedMillis();
+            this.filesWalked = metrics.getFilesWalked();
+            this.bytesRead = metrics.getBytesRead();
+            this.bytesHashed = metrics.getBytesHashed();
+            this.bytesAvoided = metrics.getBytesAvoided();
+            this.cacheHits = metrics.getCacheHits();
+            this.cacheMisses = metrics.getCacheMisses();
+            this.duplicateCount = metrics.getDuplicateCount();
+            this.queueDepths = Collections.unmodifiableMap(metrics.getQueueDepths());
+            this.latencyMillis = Collections.unmodifiableMap(metrics.getLatencyMillis());
+        }
+
+        @Override
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public long getFilesWalked() {
+            return filesWalked;
+        }
+
+        @Override
+        public double getFilesPerSecond() {
+            return rate(filesWalked, elapsedMillis);
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public long getBytesHashed() {
+            return bytesHashed;
+        }
+
+        @Override
+        public double getBytesHashedPerSecond() {
+            return rate(bytesHashed, elapsedMillis);
+        }
+
+        @Override
+        public long getBytesAvoided() {
+            return bytesAvoided;
+        }
+
+        @Override
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        @Override
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        @Override
+        public double getCacheHitRate() {
+            return hitRate(cacheHits, cacheMisses);
+        }
+
+        @Override
+        public long getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        @Override
+        public Map<String, Integer> getQueueDepths() {
+            return queueDepths;
+        }
+
+        @Override
+        public Map<String, Double> getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("耗时 %d ms，文件 %d 个(%.0f 个/秒)，读取 %d 字节，摘要 %d 字节(%.1f MB/秒)，免读取 %d 字节，"
+                            + "缓存命中率 %.1f%%，重复文件 %d 个，队列 %s，耗时分布(ms) %s",
+                    elapsedMillis, filesWalked, getFilesPerSecond(), bytesRead, bytesHashed,
+                    getBytesHashedPerSecond() / 1024 / 1024, bytesAvoided, getCacheHitRate() * 100, duplicateCount,
+                    queueDepths, latencyMillis);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.util.Map;
+
+/**
+ * 扫描指标的JMX接口，扫描进行期间注册为
+ * {@code com.scuec.tool.duplicatefinder:type=Scan,id=<序号>}，扫描结束后注销
+ */
+public interface ScanMetricsMXBean {
+    long getElapsedMillis();
+
+    long getFilesWalked();
+
+    double getFilesPerSecond();
+
+    /**
+     * 部分摘要、全量摘要及内容比对读取的总字节数
+     */
+    long getBytesRead();
+
+    long getBytesHashed();
+
+    double getBytesHashedPerSecond();
+
+    /**
+     * 大小分组、部分摘要分组剔除的文件总大小，即无需读取的字节数
+     */
+    long getBytesAvoided();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /**
+     * 摘要缓存命中率，未启用缓存时为0
+     */
+    double getCacheHitRate();
+
+    long getDuplicateCount();
+
+    /**
+     * 各阶段当前的队列积压数量
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * 各阶段单个任务耗时百分位(毫秒)，键为"阶段.p50"、"阶段.p99"等
+     */
+    Map<String, Double> getLatencyMillis();
+}
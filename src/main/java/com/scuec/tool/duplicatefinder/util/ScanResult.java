@@ -0,0 +1,47 @@
+package com.scuec.tool.duplicatefinder.util;
+
+/**
+ * 一次扫描的结果汇总
+ */
+public class ScanResult {
+    private final long totalCount;
+    private final long duplicateCount;
+    private final boolean cancelled;
+    private final long elapsedMillis;
+
+    public ScanResult(long totalCount, long duplicateCount, boolean cancelled, long elapsedMillis) {
+        this.totalCount = totalCount;
+        this.duplicateCount = duplicateCount;
+        this.cancelled = cancelled;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * 扫描是否被中途停止，停止时各数量只包含停止前已完成的部分
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResult{" +
+                "totalCount=" + totalCount +
+                ", duplicateCount=" + duplicateCount +
+                ", cancelled=" + cancelled +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 流水线阶段的输入端
+ *
+ * @param <T> 阶段处理的数据类型
+ */
+public interface Stage<T> {
+    /**
+     * 提交数据，队列已满时阻塞
+     */
+    void put(T item) throws InterruptedException;
+
+    /**
+     * 不阻塞地提交数据
+     *
+     * @return 队列已满时返回false
+     */
+    boolean offer(T item);
+
+    /**
+     * 提交数据，在{@link ForkJoinPool}工作线程(如目录遍历)中调用时经{@link ForkJoinPool.ManagedBlocker}阻塞，
+     * 队列已满时线程池可以补充线程，不会因全部工作线程阻塞而停滞
+     */
+    default void managedPut(T item) throws InterruptedException {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            put(item);
+            return;
+        }
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean done;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!done) {
+                    put(item);
+                    done = true;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                if (!done) {
+                    done = offer(item);
+                }
+                return done;
+            }
+        });
+    }
+
+    /**
+     * 当前队列积压数量
+     */
+    int size();
+
+    /**
+     * 处理完队列中剩余数据后结束工作线程
+     */
+    void close() throws InterruptedException;
+}
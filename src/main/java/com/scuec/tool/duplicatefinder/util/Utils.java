@@ -13,6 +13,12 @@ import java.awt.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -83,13 +89,49 @@ public class Utils {
     }
 
 
+    /**
+     * 移动文件到指定目录，目录中已有同名文件时返回失败。
+     * 与目标目录在同一文件系统时原子重命名，跨设备时先复制再删除源文件
+     */
     public static boolean moveTo(File srcFile, String newPath) {
         mkdirs(newPath);
-        File dstFile = new File(newPath + File.separator + srcFile.getName());
-        if (dstFile.exists()) { // 判断文件是否存在，存在直接返回失败
+        Path source = srcFile.toPath();
+        Path target = Paths.get(newPath, srcFile.getName());
+        try {
+            // 先创建空文件占用目标文件名，并发移动同名文件时不会互相覆盖
+            Files.createFile(target);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            LOGGER.warn("文件移动失败：{} -> {}", source, target, e);
+            return false;
+        }
+        boolean copied = false;
+        try {
+            if (Files.getFileStore(source).equals(Files.getFileStore(target))) {
+                try {
+                    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                    return true;
+                } catch (AtomicMoveNotSupportedException e) {
+                    LOGGER.debug("不支持原子移动，改为复制后删除：{}", source);
+                }
+            }
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            copied = true;
+            Files.delete(source);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("文件移动失败：{} -> {}", source, target, e);
+            try {
+                // 源文件仍在，删除占位文件或不完整的副本
+                if (!copied || Files.exists(source)) {
+                    Files.deleteIfExists(target);
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("目标文件清理失败：{}", target, ex);
+            }
             return false;
         }
-        return srcFile.renameTo(dstFile);
     }
 
     public static void mkdirs(String path) {
@@ -100,11 +142,35 @@ public class Utils {
         }
     }
 
+    /**
+     * 删除文件：移入回收站，不支持回收站时删除失败
+     */
     public static boolean removeFile(File file) {
-        if (file.exists()) {
+        return removeFile(file, false);
+    }
+
+    /**
+     * 删除文件：支持回收站的桌面环境中移入回收站，无图形界面或不支持回收站时只有permanent为true才直接删除
+     */
+    public static boolean removeFile(File file, boolean permanent) {
+        if (!file.exists()) {
+            return false;
+        }
+        if (!GraphicsEnvironment.isHeadless() && Desktop.isDesktopSupported()
+                && Desktop.getDesktop().isSupported(Desktop.Action.MOVE_TO_TRASH)) {
             return Desktop.getDesktop().moveToTrash(file);
         }
-        return false;
+        if (!permanent) {
+            LOGGER.warn("当前环境不支持回收站，未删除文件：{}", file.getAbsolutePath());
+            return false;
+        }
+        try {
+            Files.delete(file.toPath());
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("文件删除失败：{}", file.getAbsolutePath(), e);
+            return false;
+        }
     }
 
     /**
@@ -0,0 +1,74 @@
+package com.scuec.tool.duplicatefinder.hash;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ContentHashersTest {
+
+    @Test
+    public void knownValues() {
+        assertEquals(0xEF46DB3751D8E999L, value(HashAlgorithmEnum.XXHASH64, ""));
+        assertEquals(0x44BC2CF5AD770999L, value(HashAlgorithmEnum.XXHASH64, "abc"));
+        assertEquals(0xE3069283L, value(HashAlgorithmEnum.CRC32C, "123456789"));
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", hex(HashAlgorithmEnum.MD5, "abc"));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hex(HashAlgorithmEnum.SHA256, "abc"));
+        assertEquals("af1349b9f5f9a1a6a0404dea36dcc9499bcb25c9adc112b7cc9a93cae41f3262", hex(HashAlgorithmEnum.BLAKE3, ""));
+    }
+
+    /**
+     * 一次性读取、分块读取、直接内存读取的结果必须一致，reset后可以重复使用
+     */
+    @Test
+    public void chunkedAndDirectUpdatesMatch() {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(data);
+        for (HashAlgorithmEnum algorithm : HashAlgorithmEnum.values()) {
+            ContentHasher hasher = ContentHashers.create(algorithm);
+            hasher.update(data);
+            byte[] whole = hasher.digest();
+            long wholeValue = hasher.getValue();
+
+            hasher.reset();
+            int[] chunks = {1, 63, 64, 1000, 65536, 1 << 20};
+            int offset = 0;
+            for (int i = 0; offset < data.length; i++) {
+                int length = Math.min(chunks[i % chunks.length], data.length - offset);
+                hasher.update(data, offset, length);
+                offset += length;
+            }
+            assertArrayEquals(algorithm.name(), whole, hasher.digest());
+
+            hasher.reset();
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data).flip();
+            while (direct.hasRemaining()) {
+                ByteBuffer slice = direct.duplicate();
+                slice.limit(Math.min(direct.limit(), direct.position() + 100_003));
+                hasher.update(slice);
+                direct.position(slice.position());
+            }
+            assertArrayEquals(algorithm.name(), whole, hasher.digest());
+            assertEquals(algorithm.name(), wholeValue, hasher.getValue());
+        }
+    }
+
+    private static long value(HashAlgorithmEnum algorithm, String text) {
+        ContentHasher hasher = ContentHashers.create(algorithm);
+        hasher.update(text.getBytes(StandardCharsets.UTF_8));
+        return hasher.getValue();
+    }
+
+    private static String hex(HashAlgorithmEnum algorithm, String text) {
+        ContentHasher hasher = ContentHashers.create(algorithm);
+        hasher.update(text.getBytes(StandardCharsets.UTF_8));
+        return Hex.encodeHexString(hasher.digest());
+    }
+}
@@ -0,0 +1,98 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelIOTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ChannelIO channelIO = new ChannelIO(0);
+
+    @Test
+    public void partitionSmallGroup() throws IOException {
+        Path a1 = write("a1", "aaaa");
+        Path b1 = write("b1", "bbbb");
+        Path a2 = write("a2", "aaaa");
+        Path c1 = write("c1", "cccc");
+
+        List<List<Path>> groups = channelIO.partition(Arrays.asList(a1, b1, a2, c1));
+
+        assertEquals(1, groups.size());
+        assertEquals(Arrays.asList(a1, a2), groups.get(0));
+    }
+
+    /**
+     * 超出同时打开上限(256)的文件要与第一批中只有一个文件的等价类比较，结果中不能出现单个文件的分组
+     */
+    @Test
+    public void partitionBeyondLockstepLimit() throws IOException {
+        List<Path> files = new ArrayList<>();
+        List<Path> same = new ArrayList<>();
+        Path pairFirst = null;
+        Path pairSecond = null;
+        for (int i = 0; i < 320; i++) {
+            Path file;
+            if (i == 100) {
+                file = pairFirst = write("pair-" + i, "pair");
+            } else if (i == 300) {
+                file = pairSecond = write("pair-" + i, "pair");
+            } else if (i == 200 || i == 310) {
+                file = write("unique-" + i, "u" + (i % 1000));
+            } else {
+                file = write("same-" + i, "same");
+                same.add(file);
+            }
+            files.add(file);
+        }
+
+        List<List<Path>> groups = channelIO.partition(files);
+
+        assertEquals(2, groups.size());
+        for (List<Path> group : groups) {
+            assertTrue(group.size() >= 2);
+        }
+        assertTrue(groups.contains(same));
+        assertTrue(groups.contains(Arrays.asList(pairFirst, pairSecond)));
+    }
+
+    @Test
+    public void partitionManyDistinctFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            files.add(write("distinct-" + i, String.format("%04d", i)));
+        }
+        Path copy = write("copy", String.format("%04d", 7));
+        files.add(copy);
+
+        List<List<Path>> groups = channelIO.partition(files);
+
+        assertEquals(1, groups.size());
+        assertEquals(Arrays.asList(files.get(7), copy), groups.get(0));
+    }
+
+    @Test
+    public void contentEquals() throws IOException {
+        assertTrue(channelIO.contentEquals(write("x1", "content"), write("x2", "content")));
+        assertFalse(channelIO.contentEquals(write("y1", "content"), write("y2", "CONTENT")));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,132 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceStageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 每个设备编号对应一组读取线程，线程数按设备计算(如机械硬盘只用一个)，数据只由所在设备的线程处理
+     */
+    @Test
+    public void routesItemsToTheirDeviceLane() throws InterruptedException {
+        Map<FileEntry, String> handledBy = new ConcurrentHashMap<>();
+        PipelineStage.Tracker tracker = new PipelineStage.Tracker();
+        DeviceStage<FileEntry> stage = new DeviceStage<>("test", device -> device == 1 ? 1 : 3, 16, FileEntry::getPath, FileEntry::getDevice,
+                entry -> handledBy.put(entry, Thread.currentThread().getName()), tracker);
+        List<FileEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            FileEntry entry = new FileEntry(Paths.get("/device", i + ".bin"), i, 0, 0, i % 3 + 1);
+            entries.add(entry);
+            stage.put(entry);
+        }
+        tracker.awaitIdle();
+        stage.close();
+
+        assertEquals(3, stage.getDeviceCount());
+        assertEquals(entries.size(), handledBy.size());
+        for (FileEntry entry : entries) {
+            assertTrue(handledBy.get(entry).startsWith("duplicate-finder-test-dev" + entry.getDevice() + "-"));
+            if (entry.getDevice() == 1) {
+                assertEquals("duplicate-finder-test-dev1-0", handledBy.get(entry));
+            }
+        }
+    }
+
+    /**
+     * 遍历时每个目录解析一次设备，同一文件系统的目录编号相同，编号随文件转存到扫描索引
+     */
+    @Test
+    public void walkerResolvesDevicePerDirectory() throws IOException {
+        for (String name : new String[]{"a/1.txt", "a/2.txt", "b/c/3.txt"}) {
+            Path file = folder.getRoot().toPath().resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[]{1});
+        }
+        DeviceTable devices = new DeviceTable();
+        List<FileEntry> entries = Collections.synchronizedList(new ArrayList<>());
+        DirectoryWalker walker = new DirectoryWalker(2, false);
+        try {
+            walker.walk(Collections.singletonList(folder.getRoot().getPath()), entries::add, () -> false, devices);
+        } finally {
+            walker.shutdown();
+        }
+
+        assertEquals(3, entries.size());
+        assertEquals(1, devices.size());
+        FileIndex index = new FileIndex();
+        for (FileEntry entry : entries) {
+            assertNotEquals(DeviceTable.UNKNOWN, entry.getDevice());
+            assertEquals(entries.get(0).getDevice(), entry.getDevice());
+            assertEquals(entry.getDevice(), index.get(index.add(entry)).getDevice());
+        }
+        devices.clear();
+        assertEquals(0, devices.size());
+    }
+
+    /**
+     * 队列已满时，目录遍历的ForkJoinPool工作线程经managedPut阻塞，线程池补充线程继续执行其余目录的遍历
+     */
+    @Test
+    public void managedPutLetsWalkerPoolKeepRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PipelineStage.Tracker tracker = new PipelineStage.Tracker();
+        DeviceStage<FileEntry> stage = new DeviceStage<>("test", device -> 1, 1, FileEntry::getPath, FileEntry::getDevice, entry -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, tracker);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            CountDownLatch blocked = new CountDownLatch(1);
+            ForkJoinTask<?> producer = pool.submit(() -> {
+                // 第一条被读取线程取走后阻塞，第二条占满容量，第三条阻塞当前线程
+                for (int i = 0; i < 3; i++) {
+                    if (i == 2) {
+                        blocked.countDown();
+                    }
+                    stage.managedPut(new FileEntry(Paths.get("/device", i + ".bin"), 1, 0, 0, 1));
+                }
+                return null;
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            // 用计数器等待而不是get()，避免由测试线程自己执行该任务
+            CountDownLatch other = new CountDownLatch(1);
+            pool.execute(other::countDown);
+            assertTrue(other.await(5, TimeUnit.SECONDS));
+            assertFalse(producer.isDone());
+
+            release.countDown();
+            producer.get(5, TimeUnit.SECONDS);
+            tracker.awaitIdle();
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+            stage.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.config.Config;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateFinderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void groupAwareListenerSkipsPerFileAdapter() throws Exception {
+        createTree();
+        CountingListener grouped = new GroupCountingListener();
+        CountingListener plain = new CountingListener();
+        DuplicateFinder finder = DuplicateFinder.create(grouped).addListener(plain).config(config());
+
+        ScanResult result = finder.submit(dirs(), Collections.emptyList()).getFuture().get();
+
+        assertEquals(3, result.getDuplicateCount());
+        assertEquals(0, grouped.duplicates.get());
+        assertEquals(3, grouped.groupedDuplicates.get());
+        assertEquals(3, plain.duplicates.get());
+    }
+
+    /**
+     * Future完成时扫描已不在进行中，调用方可以立即开始下一次扫描
+     */
+    @Test
+    public void submitRightAfterCompletion() throws Exception {
+        createTree();
+        DuplicateFinder finder = DuplicateFinder.create().config(config());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(3, finder.submit(dirs(), Collections.emptyList()).getFuture().get().getDuplicateCount());
+        }
+        ScanHandle next = finder.submit(dirs(), Collections.emptyList()).getFuture()
+                .thenApply(result -> finder.submit(dirs(), Collections.emptyList())).get();
+        assertEquals(3, next.getFuture().get().getDuplicateCount());
+        finder.close();
+    }
+
+    /**
+     * 硬链接及指向文件的符号链接与原文件是同一文件，无论是否跟随符号链接都不计为重复文件
+     */
+    @Test
+    public void linksToSameFileAreNotDuplicates() throws Exception {
+        createTree();
+        Path root = folder.getRoot().toPath();
+        Files.createLink(root.resolve("one/a1-hard.txt"), root.resolve("one/a1.txt"));
+        Files.createLink(root.resolve("two/c-hard.txt"), root.resolve("one/c.txt"));
+        Files.createSymbolicLink(root.resolve("two/b1-link.txt"), root.resolve("one/b1.txt"));
+        Files.createSymbolicLink(root.resolve("two/sub/loop"), root.resolve("two"));
+        for (boolean followLinks : new boolean[]{false, true}) {
+            Config config = config();
+            config.setFollowLinks(followLinks);
+            DuplicateFinder finder = DuplicateFinder.create().config(config);
+            assertEquals(String.valueOf(followLinks), 3, finder.submit(dirs(), Collections.emptyList()).getFuture().get().getDuplicateCount());
+        }
+    }
+
+    /**
+     * 扫描线程在等待各阶段完成时被中断：扫描停止并完成清理，结果标记为已取消，线程的中断标识得以保留
+     */
+    @Test
+    public void interruptedScanIsCancelled() throws Exception {
+        assertInterruptCancels(config());
+    }
+
+    @Test
+    public void interruptedExternalScanIsCancelled() throws Exception {
+        Config config = config();
+        config.setSpillThreshold(2);
+        config.setTempDir(folder.newFolder("spill").getPath());
+        assertInterruptCancels(config);
+        assertEquals(0, new File(config.getTempDir()).list().length);
+    }
+
+    private void assertInterruptCancels(Config config) throws Exception {
+        createTree();
+        AtomicReference<Thread> scanThread = new AtomicReference<>();
+        AtomicBoolean interruptKept = new AtomicBoolean(false);
+        CountingListener listener = new CountingListener() {
+            @Override
+            public void duplicate(String first, String duplicate) {
+                if (duplicates.getAndIncrement() == 0) {
+                    scanThread.get().interrupt();
+                    sleep();
+                }
+            }
+        };
+        DuplicateFinder finder = DuplicateFinder.create(listener).config(config).executor(task -> {
+            Thread thread = new Thread(() -> {
+                task.run();
+                interruptKept.set(Thread.currentThread().isInterrupted());
+            });
+            scanThread.set(thread);
+            thread.start();
+        });
+
+        ScanResult result = finder.submit(dirs(), Collections.emptyList()).getFuture().get();
+        scanThread.get().join();
+
+        assertTrue(result.isCancelled());
+        assertTrue(interruptKept.get());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 两组重复文件：a有3份(2个重复)，b有2份(1个重复)，c和大小相同但内容不同的d不重复
+     */
+    private void createTree() throws IOException {
+        write("one/a1.txt", "aaaaaaaa");
+        write("two/a2.txt", "aaaaaaaa");
+        write("two/sub/a3.txt", "aaaaaaaa");
+        write("one/b1.txt", "bbbb");
+        write("two/b2.txt", "bbbb");
+        write("one/c.txt", "cccccc");
+        write("two/d.txt", "dddddd");
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> dirs() {
+        return Collections.singletonList(folder.getRoot().getPath());
+    }
+
+    private static Config config() {
+        Config config = new Config();
+        config.setHashCacheEnabled(false);
+        return config;
+    }
+
+    private static class CountingListener implements DuplicateFinder.ScanListener {
+        final AtomicLong duplicates = new AtomicLong(0);
+        final AtomicLong groupedDuplicates = new AtomicLong(0);
+
+        @Override
+        public void duplicate(String first, String duplicate) {
+            duplicates.incrementAndGet();
+        }
+
+        @Override
+        public void process(long count) {
+        }
+
+        @Override
+        public void finish(long count) {
+        }
+
+        @Override
+        public void totalCount(long count) {
+        }
+    }
+
+    private static class GroupCountingListener extends CountingListener implements DuplicateFinder.GroupListener {
+        @Override
+        public void groups(List<DuplicateGroup> groups) {
+            for (DuplicateGroup group : groups) {
+                groupedDuplicates.addAndGet(group.getDuplicates().size());
+            }
+        }
+    }
+}
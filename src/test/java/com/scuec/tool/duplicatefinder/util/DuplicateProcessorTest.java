@@ -0,0 +1,51 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.ProcessTypeEnum;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+public class DuplicateProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void finishWritesAllRecordsAndStopsLogThread() throws IOException {
+        DuplicateProcessor processor = new DuplicateProcessor(folder.getRoot().getPath(), ProcessTypeEnum.SCAN);
+        for (int i = 0; i < 1000; i++) {
+            processor.duplicate("/first/" + i, "/duplicate/" + i);
+        }
+        processor.finish(1000);
+
+        assertFalse(logThreadAlive());
+        assertEquals(2000, logLines().size());
+
+        // 结束后再次处理时重新打开同一日志文件追加
+        processor.duplicate("/first/again", "/duplicate/again");
+        processor.finish(1);
+        assertFalse(logThreadAlive());
+        assertEquals(2002, logLines().size());
+    }
+
+    private List<String> logLines() throws IOException {
+        File[] logs = new File(folder.getRoot(), "finder").listFiles((dir, name) -> name.startsWith("scan.log"));
+        assertNotNull(logs);
+        assertEquals(1, logs.length);
+        return Files.readAllLines(logs[0].toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean logThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("duplicate-finder-log-") && thread.isAlive());
+    }
+}
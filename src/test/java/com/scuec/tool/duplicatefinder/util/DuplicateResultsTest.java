@@ -0,0 +1,118 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DuplicateResultsTest {
+    /**
+     * 分组数超过插入排序阈值时走三数取中快排，可回收字节数大量相同，相同时按分组编号从小到大
+     */
+    @Test
+    public void sortsByWastedBytesThenGroup() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            DuplicateResults results = new DuplicateResults(offHeap);
+            List<DuplicateGroup> groups = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                groups.add(group(i, "g" + i + ".bin", i * 37 % 50, 1 + i % 3));
+            }
+            results.groups(groups);
+
+            Integer[] expected = new Integer[groups.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = i;
+            }
+            Arrays.sort(expected, Comparator.<Integer>comparingLong(i -> groups.get(i).getWastedBytes()).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+            DuplicateResults.View view = results.view(null);
+            assertEquals(expected.length, view.size());
+            for (int row = 0; row < expected.length; row++) {
+                assertEquals(expected[row].intValue(), view.group(row));
+                assertEquals(groups.get(expected[row]).getWastedBytes(), view.getWastedBytes(row));
+            }
+        }
+    }
+
+    /**
+     * 后缀过滤不区分大小写，未出现过的后缀得到空视图
+     */
+    @Test
+    public void filtersBySuffix() {
+        DuplicateResults results = new DuplicateResults();
+        results.groups(Arrays.asList(
+                group(0, "a.jpg", 10, 1),
+                group(1, "b.png", 30, 1),
+                group(2, "c.JPG", 20, 2)));
+
+        assertEquals(Arrays.asList("jpg", "png"), results.getSuffixes());
+        DuplicateResults.View jpg = results.view("JPG");
+        assertEquals(2, jpg.size());
+        assertEquals(2, jpg.group(0));
+        assertEquals(0, jpg.group(1));
+        assertEquals("jpg", jpg.getSuffix(0));
+        assertEquals(3, results.view("").size());
+        assertEquals(0, results.view("gif").size());
+    }
+
+    /**
+     * 视图只包含创建时的分组：之后追加的分组不出现，清空结果后仍读取原来的记录
+     */
+    @Test
+    public void viewKeepsItsSnapshot() {
+        DuplicateResults results = new DuplicateResults();
+        results.groups(Collections.singletonList(group(0, "a.txt", 10, 1)));
+        DuplicateResults.View view = results.view(null);
+
+        results.groups(Collections.singletonList(group(1, "b.txt", 100, 1)));
+        assertEquals(1, view.size());
+        assertEquals(2, results.view(null).size());
+
+        results.clear();
+        results.groups(Collections.singletonList(group(0, "c.txt", 50, 4)));
+        assertEquals(1, view.size());
+        assertEquals(10, view.getSize(0));
+        assertEquals(Paths.get("/results", "a.txt"), view.getRetained(0).getPath());
+        assertEquals(1, results.size());
+        assertEquals(5, results.getFileCount());
+    }
+
+    /**
+     * 从定长记录还原完整分组：保留的文件、按原顺序排列的重复文件，分组编号从1开始
+     */
+    @Test
+    public void rebuildsGroup() {
+        DuplicateResults results = new DuplicateResults();
+        DuplicateGroup original = group(0, "a.txt", 42, 3);
+        results.groups(Arrays.asList(group(1, "small.txt", 1, 1), original));
+
+        DuplicateResults.View view = results.view(null);
+        assertEquals(1, view.group(0));
+        assertEquals(4, view.getFileCount(0));
+        DuplicateGroup group = view.getGroup(0);
+        assertEquals(2, group.getId());
+        assertEquals(original.getRetained().getPath(), group.getRetained().getPath());
+        assertEquals(42, group.getSize());
+        assertEquals(original.getWastedBytes(), group.getWastedBytes());
+        assertEquals(original.getDuplicates().size(), group.getDuplicates().size());
+        for (int i = 0; i < original.getDuplicates().size(); i++) {
+            assertEquals(original.getDuplicates().get(i).getPath(), group.getDuplicates().get(i).getPath());
+            assertEquals(42, group.getDuplicates().get(i).getSize());
+        }
+    }
+
+    private static DuplicateGroup group(long id, String name, long size, int duplicates) {
+        FileEntry retained = new FileEntry(Paths.get("/results", name), size, 0, null);
+        List<FileEntry> copies = new ArrayList<>();
+        for (int i = 0; i < duplicates; i++) {
+            copies.add(new FileEntry(Paths.get("/results", "copy" + i, name), size, 0, null));
+        }
+        return new DuplicateGroup(id, retained, copies);
+    }
+}
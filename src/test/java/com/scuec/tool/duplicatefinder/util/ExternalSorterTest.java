@@ -0,0 +1,87 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalSorterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 超过阈值的记录写出为多个段文件，多路归并(包括分批归并)后相同键的记录相邻，关闭后段文件全部删除
+     */
+    @Test
+    public void mergesRunsAndDeletesThemOnClose() throws IOException {
+        File directory = folder.newFolder("runs");
+        ExternalSorter sorter = new ExternalSorter(directory, "size", 10);
+        for (int i = 0; i < 1000; i++) {
+            sorter.add(new FileEntry(Paths.get("/sorter", i + ".bin"), i % 300, 0, null), 0);
+        }
+        assertTrue(sorter.getRunCount() > 64);
+
+        List<List<FileEntry>> groups = new ArrayList<>();
+        sorter.forEachGroup(groups::add);
+        sorter.close();
+
+        assertEquals(300, groups.size());
+        for (List<FileEntry> group : groups) {
+            for (FileEntry entry : group) {
+                assertEquals(group.get(0).getSize(), entry.getSize());
+            }
+        }
+        assertArrayEquals(new String[0], directory.list());
+    }
+
+    /**
+     * 多个线程同时加入时同一时间只写出一个段文件，每个段文件至少包含阈值条记录，记录不丢失
+     */
+    @Test
+    public void concurrentAddSpillsOneBufferAtATime() throws Exception {
+        File directory = folder.newFolder("runs");
+        ExternalSorter sorter = new ExternalSorter(directory, "size", 50);
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        sorter.add(new FileEntry(Paths.get("/sorter", thread + "-" + i + ".bin"), i % 500, 0, null), 0);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads.add(worker);
+            worker.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertEquals(16000, sorter.getCount());
+        assertTrue(sorter.getRunCount() <= 16000 / 50);
+
+        AtomicLong total = new AtomicLong(0);
+        sorter.forEachGroup(group -> {
+            assertEquals(32, group.size());
+            total.addAndGet(group.size());
+        });
+        sorter.close();
+        assertEquals(16000, total.get());
+    }
+}
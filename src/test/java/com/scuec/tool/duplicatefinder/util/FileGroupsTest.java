@@ -0,0 +1,109 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FileGroupsTest {
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 20_000;
+    private static final int GROUPS = 64;
+
+    @Test
+    public void releasesSecondFileOfGroup() {
+        FileIndex index = new FileIndex();
+        FileGroups groups = new FileGroups(index, false);
+        FileEntry first = add(index, "a.jpg", 10);
+        FileEntry second = add(index, "b.jpg", 10);
+        FileEntry third = add(index, "c.jpg", 10);
+        FileEntry otherSuffix = add(index, "d.png", 10);
+
+        assertEquals(0, groups.add(first, 0).length);
+        FileEntry[] released = groups.add(second, 0);
+        assertEquals(2, released.length);
+        assertEquals(first.getPath(), released[0].getPath());
+        assertEquals(second.getPath(), released[1].getPath());
+        assertArrayEquals(new FileEntry[]{third}, groups.add(third, 0));
+        assertEquals(0, groups.add(otherSuffix, 0).length);
+        assertEquals(1, groups.singletonCount());
+        assertEquals(10, groups.singletonBytes());
+    }
+
+    /**
+     * 多个线程同时向少量分组加入文件，每个分组的成员必须恰好是加入该分组的全部文件
+     */
+    @Test
+    public void concurrentAddKeepsEveryMember() throws InterruptedException {
+        FileIndex index = new FileIndex();
+        FileGroups groups = new FileGroups(index, true);
+        AtomicLong released = new AtomicLong(0);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        int group = i % GROUPS;
+                        // 文件大小即分组编号，便于还原后校验
+                        FileEntry entry = add(index, "t" + thread + "-" + i + ".bin", group);
+                        released.addAndGet(groups.add(entry, group).length);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+
+        Map<Long, Set<String>> members = new HashMap<>();
+        groups.forEachDuplicate(group -> {
+            Set<String> names = members.computeIfAbsent(group.get(0).getSize(), size -> new HashSet<>());
+            for (FileEntry member : group) {
+                assertEquals(group.get(0).getSize(), member.getSize());
+                names.add(String.valueOf(member.getPath().getFileName()));
+            }
+        });
+        long total = (long) THREADS * PER_THREAD;
+        assertEquals(GROUPS, groups.size());
+        assertEquals(GROUPS, members.size());
+        assertEquals(total, released.get());
+        assertEquals(total, index.size());
+        for (int group = 0; group < GROUPS; group++) {
+            Set<String> expected = new HashSet<>();
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = group; i < PER_THREAD; i += GROUPS) {
+                    expected.add("t" + t + "-" + i + ".bin");
+                }
+            }
+            assertEquals(expected, members.get((long) group));
+        }
+    }
+
+    private static FileEntry add(FileIndex index, String name, long size) {
+        FileEntry entry = new FileEntry(Paths.get("/groups", name), size, 0, null);
+        index.add(entry);
+        return entry;
+    }
+}
@@ -0,0 +1,67 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class FileLinkerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FileLinker linker = new FileLinker();
+
+    @Test
+    public void linkReclaimsDuplicateSize() throws IOException {
+        Path first = write("first", "content");
+        Path duplicate = write("duplicate", "content");
+
+        assertEquals(7, linker.link(first, duplicate));
+        assertTrue(Files.isSameFile(first, duplicate));
+        assertEquals(0, linker.link(first, duplicate));
+    }
+
+    /**
+     * 重复文件还有其他硬链接时内容仍被引用，替换后不计入释放空间
+     */
+    @Test
+    public void duplicateWithOtherLinksReclaimsNothing() throws IOException {
+        assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("unix"));
+        Path first = write("first", "content");
+        Path duplicate = write("duplicate", "content");
+        Files.createLink(folder.getRoot().toPath().resolve("other"), duplicate);
+
+        assertEquals(0, linker.link(first, duplicate));
+        assertTrue(Files.isSameFile(first, duplicate));
+    }
+
+    @Test
+    public void reflinkDuplicateWithOtherLinksReclaimsNothing() throws IOException {
+        assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("unix"));
+        Path first = write("first", "content");
+        Path duplicate = write("duplicate", "content");
+        Files.createLink(folder.getRoot().toPath().resolve("other"), duplicate);
+
+        long reclaimed;
+        try {
+            reclaimed = linker.reflink(first, duplicate);
+        } catch (IOException e) {
+            // 文件系统不支持写时复制
+            assumeTrue(false);
+            return;
+        }
+        assertEquals(0, reclaimed);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
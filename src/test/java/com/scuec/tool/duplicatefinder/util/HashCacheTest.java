@@ -0,0 +1,129 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import com.scuec.tool.duplicatefinder.enums.HashAlgorithmEnum;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class HashCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 遍历到但未读取摘要的文件(如大小唯一)只要未变化就保留记录，已删除或已变化的文件剔除
+     */
+    @Test
+    public void keepsWalkedFilesNotHashedThisScan() throws IOException {
+        File root = folder.newFolder("root");
+        File cacheFile = new File(folder.getRoot(), "hash.cache");
+        Path hashed = write(root, "hashed", "hashed");
+        Path unique = write(root, "unique", "unique");
+        Path deleted = write(root, "deleted", "deleted");
+        Path changed = write(root, "changed", "changed");
+
+        HashCache first = cache(cacheFile);
+        for (Path file : new Path[]{hashed, unique, deleted, changed}) {
+            first.get(entry(file)).setPartialHash(file.getFileName().toString().hashCode());
+        }
+        first.save(roots(root), true);
+
+        HashCache second = cache(cacheFile);
+        assertEquals(4, second.size());
+        Files.delete(deleted);
+        write(root, "changed", "changed and longer");
+        // 模拟遍历：只有仍然存在的文件会被遍历到
+        for (Path file : new Path[]{hashed, unique, changed}) {
+            second.touch(entry(file));
+        }
+        assertTrue(second.get(entry(hashed)).hasPartialHash());
+        second.save(roots(root), true);
+
+        HashCache third = cache(cacheFile);
+        assertEquals(2, third.size());
+        assertEquals("unique".hashCode(), third.get(entry(unique)).getPartialHash());
+        assertTrue(third.get(entry(hashed)).hasPartialHash());
+        assertFalse(third.get(entry(changed)).hasPartialHash());
+        assertArrayEquals(new String[]{"hash.cache", "root"}, sorted(folder.getRoot().list()));
+    }
+
+    /**
+     * 原地替换为大小、修改时间都相同的新文件时文件标识不同，不能复用旧摘要
+     */
+    @Test
+    public void replacedFileWithSameSizeAndTimeMisses() throws IOException {
+        File root = folder.newFolder("root");
+        File cacheFile = new File(folder.getRoot(), "hash.cache");
+        Path file = write(root, "file", "content");
+        assumeTrue(0 != entry(file).getFileKey());
+
+        HashCache first = cache(cacheFile);
+        first.get(entry(file)).setFullHash(42);
+        first.save(roots(root), true);
+
+        FileTime modified = Files.getLastModifiedTime(file);
+        Path replacement = write(root, "replacement", "CONTENT");
+        Files.setLastModifiedTime(replacement, modified);
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+
+        HashCache second = cache(cacheFile);
+        assertFalse(second.get(entry(file)).hasFullHash());
+    }
+
+    @Test
+    public void keepsEntriesOutsideScannedRoots() throws IOException {
+        File root = folder.newFolder("root");
+        File other = folder.newFolder("other");
+        File cacheFile = new File(folder.getRoot(), "hash.cache");
+        Path outside = write(other, "outside", "outside");
+
+        HashCache first = cache(cacheFile);
+        first.get(entry(outside)).setFullHash(42);
+        first.save(roots(other), true);
+        Files.delete(outside);
+
+        HashCache second = cache(cacheFile);
+        second.save(roots(root), true);
+        assertEquals(1, cache(cacheFile).size());
+    }
+
+    private static HashCache cache(File cacheFile) {
+        HashCache cache = new HashCache(cacheFile, HashAlgorithmEnum.XXHASH64, 4096, 3);
+        cache.load();
+        return cache;
+    }
+
+    private static String[] sorted(String[] names) {
+        Arrays.sort(names);
+        return names;
+    }
+
+    private static FileEntry entry(Path file) throws IOException {
+        return FileEntry.of(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    private static Path write(File dir, String name, String content) throws IOException {
+        return Files.write(dir.toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> roots(File root) {
+        return Collections.singletonList(root.getPath());
+    }
+}
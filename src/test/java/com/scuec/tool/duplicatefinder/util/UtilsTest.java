@@ -0,0 +1,35 @@
+package com.scuec.tool.duplicatefinder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class UtilsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 无图形界面时不支持回收站，只有显式要求永久删除才删除文件
+     */
+    @Test
+    public void removeFileWithoutTrashRequiresPermanentDelete() throws IOException {
+        assumeTrue(GraphicsEnvironment.isHeadless());
+        File file = folder.newFile("duplicate.txt");
+
+        assertFalse(Utils.removeFile(file));
+        assertFalse(Utils.removeFile(file, false));
+        assertTrue(file.exists());
+
+        assertTrue(Utils.removeFile(file, true));
+        assertFalse(file.exists());
+        assertFalse(Utils.removeFile(file, true));
+    }
+}